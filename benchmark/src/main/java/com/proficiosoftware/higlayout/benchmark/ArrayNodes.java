@@ -0,0 +1,117 @@
+package com.proficiosoftware.higlayout.benchmark;
+
+import java.util.Arrays;
+
+import com.proficiosoftware.higlayout.GridNodes;
+
+/**
+ * Array backed nodes, the headless equivalent of the children of a
+ * HIGLayout. Used by the benchmarks and the tests.
+ */
+public final class ArrayNodes implements GridNodes
+{
+  private int[] mCellX;
+  private int[] mCellY;
+  private int[] mSpanX;
+  private int[] mSpanY;
+  private int[] mWidth;
+  private int[] mHeight;
+  private int mCount;
+
+  public ArrayNodes()
+  {
+    this(4);
+  }
+
+  public ArrayNodes(int capacity)
+  {
+    mCellX = new int[capacity];
+    mCellY = new int[capacity];
+    mSpanX = new int[capacity];
+    mSpanY = new int[capacity];
+    mWidth = new int[capacity];
+    mHeight = new int[capacity];
+  }
+
+  /**
+   * @return the index of the new node
+   */
+  public int add(int x, int y, int spanX, int spanY, int width, int height)
+  {
+    if (mCount == mCellX.length)
+    {
+      int capacity = Math.max(4, mCount * 2);
+      mCellX = Arrays.copyOf(mCellX, capacity);
+      mCellY = Arrays.copyOf(mCellY, capacity);
+      mSpanX = Arrays.copyOf(mSpanX, capacity);
+      mSpanY = Arrays.copyOf(mSpanY, capacity);
+      mWidth = Arrays.copyOf(mWidth, capacity);
+      mHeight = Arrays.copyOf(mHeight, capacity);
+    }
+    mCellX[mCount] = x;
+    mCellY[mCount] = y;
+    mSpanX[mCount] = spanX;
+    mSpanY[mCount] = spanY;
+    mWidth[mCount] = width;
+    mHeight[mCount] = height;
+    return mCount++;
+  }
+
+  /**
+   * Adds a node occupying a single cell.
+   *
+   * @return the index of the new node
+   */
+  public int add(int x, int y, int width, int height)
+  {
+    return add(x, y, 1, 1, width, height);
+  }
+
+  public void setPreferredSize(int node, int width, int height)
+  {
+    mWidth[node] = width;
+    mHeight[node] = height;
+  }
+
+  @Override
+  public int getNodeCount()
+  {
+    return mCount;
+  }
+
+  @Override
+  public int getCellX(int node)
+  {
+    return mCellX[node];
+  }
+
+  @Override
+  public int getCellY(int node)
+  {
+    return mCellY[node];
+  }
+
+  @Override
+  public int getSpanX(int node)
+  {
+    return mSpanX[node];
+  }
+
+  @Override
+  public int getSpanY(int node)
+  {
+    return mSpanY[node];
+  }
+
+  @Override
+  public int getPreferredWidth(int node)
+  {
+    return mWidth[node];
+  }
+
+  @Override
+  public int getPreferredHeight(int node)
+  {
+    return mHeight[node];
+  }
+}
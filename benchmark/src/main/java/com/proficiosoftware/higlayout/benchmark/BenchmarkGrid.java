@@ -0,0 +1,123 @@
+package com.proficiosoftware.higlayout.benchmark;
+
+import java.util.Random;
+
+import com.proficiosoftware.higlayout.GridNodes;
+import com.proficiosoftware.higlayout.GridSolver;
+
+/**
+ * Generates grids of a given shape for the benchmarks. Every cell holds a
+ * single child with a random (but reproducible) preferred size.
+ *
+ * Column/row specifications follow a fixed pattern so runs are comparable:
+ * every 4th track has a fixed size, the others are auto sized. With
+ * references enabled track 2 and every 4th track after it reference their
+ * predecessor, starting at 2 because -0 can't reference track 0. A fixed
+ * grid has only fixed size tracks. In a spanning grid the children of each
+ * row span a random number of columns and rows, up to a maximum span.
+ */
+final class BenchmarkGrid
+{
+  static final int FIXED_SIZE = 48;
+
+  final int columns;
+  final int rows;
+  final int[] colWidths;
+  final int[] rowHeights;
+  final int[] colWeights;
+  final int[] rowWeights;
+  final ArrayNodes nodes;
+
+  /**
+   * @param shape
+   *          "<columns>x<rows>"
+   * @param weights
+   *          "none", "some" or "all"
+   * @param references
+   *          when true some tracks reference other tracks (negative size)
+   */
+  BenchmarkGrid(String shape, String weights, boolean references)
+  {
+    this(shape, weights, references, false);
+  }
+
+  /**
+   * @param fixed
+   *          when true all tracks have a fixed size (a static grid)
+   */
+  BenchmarkGrid(String shape, String weights, boolean references,
+      boolean fixed)
+  {
+    this(shape, weights, references, fixed, 1);
+  }
+
+  /**
+   * @param maxSpan
+   *          when greater than 1 children span up to maxSpan columns and rows
+   */
+  BenchmarkGrid(String shape, String weights, boolean references,
+      boolean fixed, int maxSpan)
+  {
+    int sep = shape.indexOf('x');
+    columns = Integer.parseInt(shape.substring(0, sep));
+    rows = Integer.parseInt(shape.substring(sep + 1));
+
+    colWidths = tracks(columns, references, fixed);
+    rowHeights = tracks(rows, references, fixed);
+    colWeights = weights(columns, weights);
+    rowWeights = weights(rows, weights);
+
+    Random random = new Random(42);
+    nodes = new ArrayNodes(columns * rows);
+    for (int y = 0; y < rows; y++)
+    {
+      for (int x = 0; x < columns;)
+      {
+        int spanX = 1;
+        int spanY = 1;
+        if (maxSpan > 1)
+        {
+          spanX = Math.min(1 + random.nextInt(maxSpan), columns - x);
+          spanY = Math.min(1 + random.nextInt(maxSpan), rows - y);
+        }
+        nodes.add(x, y, spanX, spanY, 10 + random.nextInt(190) * spanX,
+            10 + random.nextInt(40) * spanY);
+        x += spanX;
+      }
+    }
+  }
+
+  GridSolver newSolver()
+  {
+    return new GridSolver(colWidths.clone(), rowHeights.clone(),
+        colWeights.clone(), rowWeights.clone());
+  }
+
+  private static int[] tracks(int count, boolean references, boolean fixed)
+  {
+    int[] sizes = new int[count];
+    for (int i = 0; i < count; i++)
+    {
+      if (fixed || i % 4 == 3)
+        sizes[i] = FIXED_SIZE;
+      else if (references && i % 4 == 2)
+        sizes[i] = -(i - 1);
+    }
+    return sizes;
+  }
+
+  private static int[] weights(int count, String mode)
+  {
+    int[] weights = new int[count];
+    for (int i = 0; i < count; i++)
+    {
+      if ("all".equals(mode))
+        weights[i] = 1;
+      else if ("some".equals(mode) && i % 5 == 0)
+        weights[i] = 1;
+      else if (!"none".equals(mode) && !"some".equals(mode))
+        throw new IllegalArgumentException("Unknown weights mode: " + mode);
+    }
+    return weights;
+  }
+}
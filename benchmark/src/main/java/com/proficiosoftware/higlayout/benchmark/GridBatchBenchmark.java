@@ -0,0 +1,91 @@
+package com.proficiosoftware.higlayout.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.proficiosoftware.higlayout.GridBatch;
+import com.proficiosoftware.higlayout.GridSolution;
+import com.proficiosoftware.higlayout.GridSpec;
+
+/**
+ * Measures how the throughput of GridBatch scales with the number of
+ * threads. A batch holds BATCH_SIZE grids of the same shape, each stretched
+ * to a different size. The score is in grids solved per millisecond.
+ *
+ * Compare threads=1 with the other counts, scaling stops at the number of
+ * cores of the machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridBatchBenchmark
+{
+  private static final int BATCH_SIZE = 1024;
+
+  @Param({ "1", "2", "4", "8" })
+  public int threads;
+
+  @Param({ "10x10", "20x50" })
+  public String grid;
+
+  @Param({ "false", "true" })
+  public boolean spanning;
+
+  private ExecutorService mPool;
+  private GridBatch mBatch;
+  private List<GridBatch.Job> mJobs;
+
+  @Setup(Level.Trial)
+  public void setUp()
+  {
+    BenchmarkGrid g = new BenchmarkGrid(grid, "some", true, false,
+        spanning ? 3 : 1);
+    GridSpec spec = new GridSpec(g.colWidths, g.rowHeights, g.colWeights,
+        g.rowWeights);
+    GridSolution preferred = GridSolution.compute(spec, g.nodes,
+        GridSolution.WRAP_CONTENT, GridSolution.WRAP_CONTENT);
+
+    mJobs = new ArrayList<GridBatch.Job>(BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++)
+      mJobs.add(new GridBatch.Job(spec, g.nodes,
+          preferred.getPreferredWidth() + i % 200,
+          preferred.getPreferredHeight() + i % 100));
+
+    mPool = Executors.newFixedThreadPool(threads);
+    mBatch = new GridBatch(mPool, threads);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown()
+  {
+    mPool.shutdown();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public List<GridSolution> solve() throws InterruptedException
+  {
+    return mBatch.solve(mJobs);
+  }
+}
@@ -0,0 +1,125 @@
+package com.proficiosoftware.higlayout.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.proficiosoftware.higlayout.GridSolver;
+
+/**
+ * Measures the measure and layout passes of HIGLayout without android. The
+ * measure pass is what HIGLayout.onMeasure() asks of the solver, the layout
+ * pass is the cell computation HIGLayout.onLayout() does for every child.
+ *
+ * Run with "-prof gc" to get the allocation per pass (gc.alloc.rate.norm).
+ * Add "-p fixed=true" to measure static grids (only fixed size tracks).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridSolverBenchmark
+{
+  // extra space handed out to the weighted tracks
+  private static final int SLACK = 100;
+
+  @Param({ "3x3", "10x10", "20x50", "50x500" })
+  public String grid;
+
+  @Param({ "none", "some", "all" })
+  public String weights;
+
+  @Param({ "false", "true" })
+  public boolean references;
+
+  @Param({ "false" })
+  public boolean fixed;
+
+  private BenchmarkGrid mGrid;
+  private GridSolver mSolver;
+  private int mChangedNode;
+
+  @Setup(Level.Trial)
+  public void setUp()
+  {
+    mGrid = new BenchmarkGrid(grid, weights, references, fixed);
+    mSolver = mGrid.newSolver();
+    measure();
+  }
+
+  /**
+   * No child changed since the previous pass. Compare with
+   * measureAllInvalidated for the cost of a full pass.
+   */
+  @Benchmark
+  public int measure()
+  {
+    int width = mSolver.calcWidths(mGrid.nodes);
+    int height = mSolver.calcHeights(mGrid.nodes);
+    mSolver.distributeWidth(width + SLACK);
+    mSolver.distributeHeight(height + SLACK);
+    return width + height;
+  }
+
+  /**
+   * A single child changes its preferred size, only its column and row are
+   * recomputed.
+   */
+  @Benchmark
+  public int measureOneCellChanged()
+  {
+    ArrayNodes nodes = mGrid.nodes;
+    mChangedNode = (mChangedNode + 7919) % nodes.getNodeCount();
+    nodes.setPreferredSize(mChangedNode, 10 + (mChangedNode & 127),
+        10 + (mChangedNode & 31));
+    mSolver.invalidateNode(nodes, mChangedNode);
+    return measure();
+  }
+
+  /**
+   * All children are remeasured, like after a change of the constraints.
+   */
+  @Benchmark
+  public int measureAllInvalidated()
+  {
+    mSolver.invalidateTracks();
+    return measure();
+  }
+
+  @Benchmark
+  public void layout(Blackhole bh)
+  {
+    int x[] = mSolver.getColumnsX(0);
+    int y[] = mSolver.getRowsY(0);
+
+    ArrayNodes nodes = mGrid.nodes;
+    for (int i = nodes.getNodeCount() - 1; i >= 0; i--)
+    {
+      int cx = nodes.getCellX(i);
+      int cy = nodes.getCellY(i);
+      bh.consume(x[cx + nodes.getSpanX(i)] - x[cx]);
+      bh.consume(y[cy + nodes.getSpanY(i)] - y[cy]);
+    }
+  }
+
+  @Benchmark
+  public void measureAndLayout(Blackhole bh)
+  {
+    bh.consume(measure());
+    layout(bh);
+  }
+}
@@ -0,0 +1,93 @@
+package com.proficiosoftware.higlayout.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.proficiosoftware.higlayout.GridSolver;
+
+/**
+ * Measures the measure pass for grids in which children span several columns
+ * and rows. Compare maxSpan=1 (no spanning children) with the other spans
+ * for the cost of widening the tracks for spanning children.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpanningGridBenchmark
+{
+  // extra space handed out to the weighted tracks
+  private static final int SLACK = 100;
+
+  @Param({ "10x10", "20x50", "50x500" })
+  public String grid;
+
+  @Param({ "1", "2", "4", "8" })
+  public int maxSpan;
+
+  @Param({ "none", "some" })
+  public String weights;
+
+  private BenchmarkGrid mGrid;
+  private GridSolver mSolver;
+  private int mChangedNode;
+
+  @Setup(Level.Trial)
+  public void setUp()
+  {
+    mGrid = new BenchmarkGrid(grid, weights, false, false, maxSpan);
+    mSolver = mGrid.newSolver();
+    measure();
+  }
+
+  /**
+   * No child changed since the previous pass.
+   */
+  @Benchmark
+  public int measure()
+  {
+    int width = mSolver.calcWidths(mGrid.nodes);
+    int height = mSolver.calcHeights(mGrid.nodes);
+    mSolver.distributeWidth(width + SLACK);
+    mSolver.distributeHeight(height + SLACK);
+    return width + height;
+  }
+
+  /**
+   * A single child changes its preferred size.
+   */
+  @Benchmark
+  public int measureOneCellChanged()
+  {
+    ArrayNodes nodes = mGrid.nodes;
+    mChangedNode = (mChangedNode + 7919) % nodes.getNodeCount();
+    nodes.setPreferredSize(mChangedNode, 10 + (mChangedNode & 127),
+        10 + (mChangedNode & 31));
+    mSolver.invalidateNode(nodes, mChangedNode);
+    return measure();
+  }
+
+  /**
+   * All children are remeasured, like after a change of the constraints.
+   */
+  @Benchmark
+  public int measureAllInvalidated()
+  {
+    mSolver.invalidateTracks();
+    return measure();
+  }
+}
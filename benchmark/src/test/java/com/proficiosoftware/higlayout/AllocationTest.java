@@ -0,0 +1,93 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import com.proficiosoftware.higlayout.benchmark.ArrayNodes;
+
+/**
+ * The measure pass reuses buffers owned by the solver, after warm-up it must
+ * not allocate at all.
+ */
+public class AllocationTest
+{
+  private static final int WARMUP_PASSES = 20000;
+  private static final int PASSES = 10000;
+  private static final int ROUNDS = 5;
+
+  @Test
+  public void measurePassDoesNotAllocate()
+  {
+    // auto sized columns/rows with references, weights and spanning nodes
+    int columns = 20;
+    int rows = 50;
+    int[] colWidths = new int[columns];
+    int[] rowHeights = new int[rows];
+    int[] colWeights = new int[columns];
+    int[] rowWeights = new int[rows];
+    for (int i = 0; i < columns; i++)
+    {
+      if (i % 4 == 1)
+        colWidths[i] = -(i - 1);
+      colWeights[i] = 1;
+    }
+    for (int i = 0; i < rows; i++)
+    {
+      if (i % 4 == 1)
+        rowHeights[i] = -(i - 1);
+      rowWeights[i] = i % 5 == 0 ? 1 : 0;
+    }
+    ArrayNodes nodes = new ArrayNodes();
+    for (int y = 0; y < rows; y++)
+    {
+      for (int x = 0; x < columns; x++)
+        nodes.add(x, y, 10 + (x * 7 + y) % 97, 10 + (x + y * 3) % 31);
+    }
+    nodes.add(0, 0, 3, 2, 500, 200);
+    GridSolver solver = new GridSolver(colWidths, rowHeights, colWeights,
+        rowWeights);
+
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+
+    int node = 0;
+    for (int i = 0; i < WARMUP_PASSES; i++)
+      node = pass(solver, nodes, node, i);
+
+    // the JIT may still allocate a few bytes once, e.g. when it deoptimizes.
+    // An allocation in the pass itself shows up in every round
+    long allocated = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS && allocated > 0; round++)
+    {
+      long before = threads.getThreadAllocatedBytes(thread);
+      for (int i = 0; i < PASSES; i++)
+        node = pass(solver, nodes, node, i);
+      allocated = threads.getThreadAllocatedBytes(thread) - before;
+    }
+
+    assertEquals("bytes allocated by " + PASSES + " passes", 0, allocated);
+  }
+
+  /**
+   * A measure pass after a single node changed, like after a requestLayout()
+   * of one child.
+   */
+  private static int pass(GridSolver solver, ArrayNodes nodes, int node,
+      int i)
+  {
+    node = (node + 7919) % nodes.getNodeCount();
+    nodes.setPreferredSize(node, 10 + (i & 127), 10 + (i & 31));
+    solver.invalidateNode(nodes, node);
+    int width = solver.calcWidths(nodes);
+    int height = solver.calcHeights(nodes);
+    solver.distributeWidth(width + 100);
+    solver.distributeHeight(height + 100);
+    solver.getColumnsX(0);
+    solver.getRowsY(0);
+    return node;
+  }
+}
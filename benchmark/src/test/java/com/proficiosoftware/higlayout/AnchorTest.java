@@ -0,0 +1,35 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * One letter along an axis anchors to that side, a second letter stretches.
+ */
+public class AnchorTest
+{
+  @Test
+  public void singleLetterAnchorsToThatSide()
+  {
+    assertEquals(Anchor.LEFT | Anchor.BOTTOM, Anchor.compile("bl"));
+    assertEquals(Anchor.RIGHT, Anchor.compile("r"));
+    assertEquals(0, Anchor.compile(""));
+    assertEquals(0, Anchor.compile(null));
+  }
+
+  @Test
+  public void secondLetterStretches()
+  {
+    assertEquals(Anchor.HORIZONTAL | Anchor.VERTICAL, Anchor.compile("lrtb"));
+    assertEquals(Anchor.HORIZONTAL, Anchor.compile("ll"));
+    assertEquals(Anchor.HORIZONTAL | Anchor.TOP, Anchor.compile("rrt"));
+    assertEquals(Anchor.VERTICAL, Anchor.compile("bb"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void otherCharacterThrows()
+  {
+    Anchor.compile("lx");
+  }
+}
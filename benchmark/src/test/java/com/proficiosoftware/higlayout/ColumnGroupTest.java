@@ -0,0 +1,86 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.proficiosoftware.higlayout.benchmark.ArrayNodes;
+
+/**
+ * The members of a column group add their widths until the group is solved,
+ * members solved afterwards take the widths without solving their columns.
+ */
+public class ColumnGroupTest
+{
+  private static GridSolver createMember(ColumnGroup group)
+  {
+    GridSolver solver = new GridSolver(new int[] { 0, 0, 0 },
+        new int[] { 0 }, null, null);
+    solver.setColumnGroup(group);
+    return solver;
+  }
+
+  private static ArrayNodes createRow(int... widths)
+  {
+    ArrayNodes nodes = new ArrayNodes();
+    for (int x = 0; x < widths.length; x++)
+      nodes.add(x, 0, widths[x], 10);
+    return nodes;
+  }
+
+  private static int[] widths(GridSolver solver)
+  {
+    int[] widths = new int[3];
+    solver.copyComputedSizes(widths, new int[1]);
+    return widths;
+  }
+
+  @Test
+  public void membersAddTheirWidthsUntilSolved()
+  {
+    ColumnGroup group = new ColumnGroup(3);
+    GridSolver first = createMember(group);
+    GridSolver second = createMember(group);
+    first.calcWidths(createRow(10, 50, 20));
+    assertEquals(100, second.calcWidths(createRow(30, 5, 20)));
+    assertArrayEquals(new int[] { 30, 50, 20 }, widths(second));
+    assertFalse(first.isColumnGroupCurrent());
+    assertTrue(second.isColumnGroupCurrent());
+  }
+
+  @Test
+  public void memberOfSolvedGroupDoesNotSolveItsColumns()
+  {
+    ColumnGroup group = new ColumnGroup(3);
+    createMember(group).calcWidths(createRow(10, 50, 20));
+    group.solve();
+
+    GridSolver later = createMember(group);
+    assertEquals(80, later.calcWidths(createRow(90, 5, 5)));
+    assertArrayEquals(new int[] { 10, 50, 20 }, widths(later));
+    assertEquals(0, later.getTracksComputed());
+    assertArrayEquals(new int[] { 10, 50, 20 }, new int[] {
+        group.getColumnWidth(0), group.getColumnWidth(1),
+        group.getColumnWidth(2) });
+  }
+
+  @Test
+  public void resetSolvesTheColumnsAgain()
+  {
+    ColumnGroup group = new ColumnGroup(3);
+    GridSolver member = createMember(group);
+    ArrayNodes nodes = createRow(10, 50, 20);
+    member.calcWidths(nodes);
+    group.solve();
+    member.calcWidths(nodes);
+
+    group.reset();
+    assertFalse(group.isSolved());
+    nodes.setPreferredSize(0, 40, 10);
+    assertEquals(110, member.calcWidths(nodes));
+    assertArrayEquals(new int[] { 40, 50, 20 }, widths(member));
+  }
+}
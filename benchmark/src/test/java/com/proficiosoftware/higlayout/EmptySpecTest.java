@@ -0,0 +1,61 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.proficiosoftware.higlayout.benchmark.ArrayNodes;
+
+/**
+ * A layout built in code starts with a solver for an empty spec, the column
+ * and row setters of the layout must be able to build the grid from it.
+ */
+public class EmptySpecTest
+{
+  private static GridSolver createSolver()
+  {
+    return new GridSolver(new GridSpec(new int[0], new int[0], null, null));
+  }
+
+  @Test
+  public void emptySpecSolvesToNothing()
+  {
+    GridSolver solver = createSolver();
+    ArrayNodes nodes = new ArrayNodes();
+    assertEquals(0, solver.calcWidths(nodes));
+    assertEquals(0, solver.calcHeights(nodes));
+    assertEquals(0, solver.getSpec().colCount);
+  }
+
+  @Test
+  public void columnsAndRowsAreSetOneByOne()
+  {
+    GridSolver solver = createSolver();
+    solver.setColumnWidth(1, 30);
+    solver.setRowHeight(0, 0);
+    solver.setColumnWeight(0, 1);
+    solver.setRowWeight(0, 1);
+    solver.setColumnLimits(0, 20, 0);
+    solver.setRowLimits(0, 0, 40);
+    assertEquals(1, solver.appendRow(10, 0));
+    solver.setColumnGroup(new ColumnGroup(2));
+
+    ArrayNodes nodes = new ArrayNodes();
+    nodes.add(0, 0, 5, 50);
+    assertEquals(50, solver.calcWidths(nodes));
+    assertEquals(50, solver.calcHeights(nodes));
+    solver.distributeWidth(60);
+    assertEquals(30, solver.getColumnsX(0)[1]);
+  }
+
+  @Test
+  public void columnWidthsHeightsReplaceTheEmptySpec()
+  {
+    GridSolver solver = createSolver();
+    solver.setColumnWidthsHeights(new int[] { 10, 0 }, new int[] { 20 });
+    ArrayNodes nodes = new ArrayNodes();
+    nodes.add(1, 0, 15, 5);
+    assertEquals(25, solver.calcWidths(nodes));
+    assertEquals(20, solver.calcHeights(nodes));
+  }
+}
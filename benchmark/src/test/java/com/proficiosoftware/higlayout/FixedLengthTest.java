@@ -0,0 +1,43 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.proficiosoftware.higlayout.benchmark.ArrayNodes;
+
+/**
+ * Children in fixed size tracks are measured against the cell size before
+ * solving, it must match the solved size.
+ */
+public class FixedLengthTest
+{
+  @Test
+  public void fixedLengthIsClampedToLimits()
+  {
+    GridSpec spec = new GridSpec(new int[] { 30, 40, 10 }, new int[] { 30,
+        40 }, null, null, new int[] { 0, 50, 0 }, new int[] { 20, 0, 0 },
+        new int[] { 35, 0 }, new int[] { 0, 25 });
+    GridSolver solver = new GridSolver(spec);
+
+    ArrayNodes nodes = new ArrayNodes();
+    nodes.add(0, 0, 5, 5);
+    assertEquals(solver.calcWidths(nodes),
+        solver.getFixedColumnsWidth(0, 3));
+    assertEquals(solver.calcHeights(nodes), solver.getFixedRowsHeight(0, 2));
+    assertEquals(20, solver.getFixedColumnsWidth(0, 1));
+    assertEquals(50, solver.getFixedColumnsWidth(1, 1));
+    assertEquals(35, solver.getFixedRowsHeight(0, 1));
+    assertEquals(25, solver.getFixedRowsHeight(1, 1));
+  }
+
+  @Test
+  public void autoOrWeightedTracksHaveNoFixedLength()
+  {
+    GridSolver solver = new GridSolver(new int[] { 30, 0, 30 },
+        new int[] { 10 }, new int[] { 0, 0, 1 }, null);
+    assertEquals(30, solver.getFixedColumnsWidth(0, 1));
+    assertEquals(-1, solver.getFixedColumnsWidth(0, 2));
+    assertEquals(-1, solver.getFixedColumnsWidth(2, 1));
+  }
+}
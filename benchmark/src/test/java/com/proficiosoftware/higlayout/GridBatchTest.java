@@ -0,0 +1,91 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.proficiosoftware.higlayout.benchmark.ArrayNodes;
+
+public class GridBatchTest
+{
+  private static final GridSpec SPEC = new GridSpec(new int[] { 0, 10, 0 },
+      new int[] { 0, 0 }, new int[] { 1, 0, 0 }, new int[] { 0, 1 });
+
+  private static List<GridBatch.Job> createJobs(int count)
+  {
+    List<GridBatch.Job> jobs = new ArrayList<GridBatch.Job>(count);
+    for (int i = 0; i < count; i++)
+    {
+      ArrayNodes nodes = new ArrayNodes();
+      nodes.add(0, 0, 10 + i, 20);
+      nodes.add(2, 1, 30, 5 + i % 7);
+      nodes.add(0, 1, 2, 1, 60 + i % 11, 10);
+      jobs.add(new GridBatch.Job(SPEC, nodes, 100 + i,
+          GridSolution.WRAP_CONTENT));
+    }
+    return jobs;
+  }
+
+  @Test
+  public void solvesLikeSingleJobs() throws InterruptedException
+  {
+    List<GridBatch.Job> jobs = createJobs(103);
+    ExecutorService pool = Executors.newFixedThreadPool(3);
+    try
+    {
+      List<GridSolution> solutions = new GridBatch(pool, 3).solve(jobs);
+
+      assertEquals(jobs.size(), solutions.size());
+      for (int i = 0; i < jobs.size(); i++)
+      {
+        GridBatch.Job job = jobs.get(i);
+        GridSolution expected = GridSolution.compute(job.getSpec(),
+            job.getNodes(), job.getWidth(), job.getHeight());
+        assertSameSizes(expected, solutions.get(i));
+      }
+    }
+    finally
+    {
+      pool.shutdown();
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void failingJobFailsBatch() throws InterruptedException
+  {
+    List<GridBatch.Job> jobs = createJobs(10);
+    ArrayNodes outside = new ArrayNodes();
+    outside.add(5, 0, 10, 10);
+    jobs.set(6, new GridBatch.Job(SPEC, outside, 100, 100));
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try
+    {
+      new GridBatch(pool, 2).solve(jobs);
+    }
+    finally
+    {
+      pool.shutdown();
+    }
+  }
+
+  private static void assertSameSizes(GridSolution expected,
+      GridSolution actual)
+  {
+    int[] expectedWidths = new int[3];
+    int[] expectedHeights = new int[2];
+    expected.copySizes(expectedWidths, expectedHeights);
+    int[] widths = new int[3];
+    int[] heights = new int[2];
+    actual.copySizes(widths, heights);
+    assertArrayEquals(expectedWidths, widths);
+    assertArrayEquals(expectedHeights, heights);
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+  }
+}
@@ -0,0 +1,109 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.proficiosoftware.higlayout.benchmark.ArrayNodes;
+
+/**
+ * Hit testing a geometry snapshot must find the same nodes as testing every
+ * node, including nodes spanning several cells.
+ */
+public class GridGeometryTest
+{
+  /**
+   * All columns and rows are 10 pixels.
+   */
+  private static GridGeometry createGeometry(ArrayNodes nodes, int columns,
+      int rows)
+  {
+    GridSpec.Builder builder = new GridSpec.Builder();
+    for (int i = 0; i < columns; i++)
+      builder.setColumnWidth(i, 10);
+    for (int i = 0; i < rows; i++)
+      builder.setRowHeight(i, 10);
+    GridSolver solver = new GridSolver(builder.build());
+    solver.distributeWidth(solver.calcWidths(nodes));
+    solver.distributeHeight(solver.calcHeights(nodes));
+    return solver.createGeometry(nodes, 0, 0, 1);
+  }
+
+  @Test
+  public void nodeSpanningTheGridIsFoundInEveryCell()
+  {
+    ArrayNodes nodes = new ArrayNodes();
+    nodes.add(0, 0, 3, 4, 0, 0);
+    for (int y = 0; y < 4; y++)
+    {
+      for (int x = 0; x < 3; x++)
+        nodes.add(x, y, 10, 10);
+    }
+    GridGeometry geometry = createGeometry(nodes, 3, 4);
+
+    int[] found = new int[2];
+    assertEquals(2, geometry.getNodesAt(2, 3, found));
+    assertArrayEquals(new int[] { 12, 0 }, found);
+    assertEquals(12, geometry.getNodeAt(25, 35));
+    assertEquals(-1, geometry.getNodeAt(30, 5));
+  }
+
+  @Test
+  public void spanningNodeAddedLastIsOnTop()
+  {
+    ArrayNodes nodes = new ArrayNodes();
+    nodes.add(1, 1, 10, 10);
+    nodes.add(0, 0, 2, 2, 20, 20);
+    nodes.add(0, 1, 10, 10);
+    GridGeometry geometry = createGeometry(nodes, 2, 2);
+
+    assertEquals(1, geometry.getNodeAt(15, 15));
+    assertEquals(2, geometry.getNodeAt(5, 15));
+    assertEquals(1, geometry.getNodeAt(5, 5));
+  }
+
+  @Test
+  public void matchesTestingEveryNode()
+  {
+    int columns = 5;
+    int rows = 7;
+    Random random = new Random(7);
+    ArrayNodes nodes = new ArrayNodes();
+    for (int j = 0; j < 30; j++)
+    {
+      int x = random.nextInt(columns);
+      int y = random.nextInt(rows);
+      nodes.add(x, y, 1 + random.nextInt(3), 1 + random.nextInt(4), 10, 10);
+    }
+    GridGeometry geometry = createGeometry(nodes, columns, rows);
+
+    int[] found = new int[nodes.getNodeCount()];
+    for (int row = 0; row < rows; row++)
+    {
+      for (int col = 0; col < columns; col++)
+      {
+        int[] expected = new int[nodes.getNodeCount()];
+        int n = 0;
+        for (int j = 0; j < nodes.getNodeCount(); j++)
+        {
+          if (nodes.getCellX(j) <= col
+              && nodes.getCellX(j) + nodes.getSpanX(j) > col
+              && nodes.getCellY(j) <= row
+              && nodes.getCellY(j) + nodes.getSpanY(j) > row)
+            expected[n++] = j;
+        }
+        int count = geometry.getNodesAt(col, row, found);
+        assertEquals(n, count);
+        int[] actual = Arrays.copyOf(found, count);
+        Arrays.sort(actual);
+        assertArrayEquals(Arrays.copyOf(expected, n), actual);
+        assertEquals(n > 0 ? expected[n - 1] : -1, geometry.getNodeAt(
+            geometry.getColumnX(col), geometry.getRowY(row)));
+      }
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.proficiosoftware.higlayout.benchmark.ArrayNodes;
+
+public class GridIndexTest
+{
+  /**
+   * A 3x3 grid. Nodes 0, 1 and 5 are in the first row, 1 and 5 share a cell.
+   * Node 2 spans two columns, 3 spans two rows and 4 the whole last row.
+   */
+  private static ArrayNodes createNodes()
+  {
+    ArrayNodes nodes = new ArrayNodes();
+    nodes.add(0, 0, 10, 10);
+    nodes.add(1, 0, 10, 10);
+    nodes.add(0, 1, 2, 1, 10, 10);
+    nodes.add(2, 1, 1, 2, 10, 10);
+    nodes.add(0, 2, 3, 1, 10, 10);
+    nodes.add(1, 0, 10, 10);
+    return nodes;
+  }
+
+  @Test
+  public void listsSingleTrackNodesPerColumnAndRow()
+  {
+    GridIndex index = new GridIndex();
+    index.build(createNodes(), 3, 3);
+
+    assertArrayEquals(new int[] { 0, 1, 3, 4 },
+        Arrays.copyOf(index.colStart, 4));
+    assertArrayEquals(new int[] { 0, 1, 5, 3 },
+        Arrays.copyOf(index.colNodes, 4));
+    assertArrayEquals(new int[] { 0, 3, 4, 5 },
+        Arrays.copyOf(index.rowStart, 4));
+    assertArrayEquals(new int[] { 0, 1, 5, 2, 4 },
+        Arrays.copyOf(index.rowNodes, 5));
+  }
+
+  @Test
+  public void listsAllNodesByStartRow()
+  {
+    GridIndex index = new GridIndex();
+    index.build(createNodes(), 3, 3);
+
+    assertArrayEquals(new int[] { 0, 3, 5, 6 },
+        Arrays.copyOf(index.cellRowStart, 4));
+    assertArrayEquals(new int[] { 0, 1, 5, 2, 3, 4 },
+        Arrays.copyOf(index.cellRowNodes, 6));
+    assertEquals(2, index.maxSpanY);
+  }
+
+  @Test
+  public void listsSpanningNodesByIncreasingSpan()
+  {
+    ArrayNodes nodes = new ArrayNodes();
+    nodes.add(0, 0, 3, 1, 10, 10);
+    nodes.add(0, 1, 9, 1, 10, 10); // beyond the grid, counts as 3
+    nodes.add(1, 2, 2, 1, 10, 10);
+    nodes.add(0, 0, 1, 2, 10, 10);
+
+    GridIndex index = new GridIndex();
+    index.build(nodes, 3, 3);
+
+    assertEquals(3, index.colSpanCount);
+    assertArrayEquals(new int[] { 2, 0, 1 },
+        Arrays.copyOf(index.colSpanNodes, 3));
+    assertEquals(1, index.rowSpanCount);
+    assertEquals(3, index.rowSpanNodes[0]);
+  }
+
+  @Test
+  public void rebuildReusesBuffers()
+  {
+    GridIndex index = new GridIndex();
+    index.build(createNodes(), 3, 3);
+    int[] colNodes = index.colNodes;
+    int[] rowStart = index.rowStart;
+
+    ArrayNodes nodes = new ArrayNodes();
+    nodes.add(2, 2, 10, 10);
+    index.build(nodes, 3, 3);
+
+    assertSame(colNodes, index.colNodes);
+    assertSame(rowStart, index.rowStart);
+    assertArrayEquals(new int[] { 0, 0, 0, 1 },
+        Arrays.copyOf(index.colStart, 4));
+    assertEquals(0, index.colSpanCount);
+    assertEquals(1, index.maxSpanY);
+  }
+}
@@ -0,0 +1,140 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.proficiosoftware.higlayout.benchmark.ArrayNodes;
+
+public class GridSpecTest
+{
+  private static GridSpec createSpec()
+  {
+    return new GridSpec(new int[] { 0, 10 }, new int[] { 20, 0 }, new int[] {
+        1, 0 }, new int[] { 0, 1 });
+  }
+
+  @Test
+  public void appendedRowHasHeightAndWeight()
+  {
+    GridSpec spec = createSpec();
+    GridSpec appended = spec.withAppendedRow(30, 2);
+
+    assertEquals(3, appended.getRowCount());
+    assertEquals(30, appended.getRowHeight(2));
+    assertEquals(2, appended.getRowWeight(2));
+    assertEquals(20, appended.getRowHeight(0));
+    assertEquals(1, appended.getRowWeight(1));
+    assertEquals(3, appended.rowWeightsSum);
+    assertEquals(2, appended.getColumnCount());
+  }
+
+  @Test
+  public void originalSpecDoesNotChange()
+  {
+    GridSpec spec = createSpec();
+    spec.withAppendedRow(30, 2);
+
+    assertEquals(2, spec.getRowCount());
+    assertEquals(1, spec.rowWeightsSum);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void originalSpecDoesNotReadAppendedRow()
+  {
+    GridSpec spec = createSpec().withAppendedRow(1, 0);
+    GridSpec appended = spec.withAppendedRow(30, 2);
+
+    assertSame(spec.rowHeights, appended.rowHeights);
+    spec.getRowHeight(3);
+  }
+
+  @Test
+  public void appendingGrowsGeometrically()
+  {
+    GridSpec spec = createSpec();
+    int reallocations = 0;
+    for (int i = 0; i < 1000; i++)
+    {
+      GridSpec appended = spec.withAppendedRow(i + 1, 0);
+      if (appended.rowHeights != spec.rowHeights)
+        reallocations++;
+      spec = appended;
+    }
+
+    assertEquals(1002, spec.getRowCount());
+    assertTrue("reallocations: " + reallocations, reallocations <= 10);
+    for (int i = 0; i < 1000; i++)
+      assertEquals(i + 1, spec.getRowHeight(i + 2));
+  }
+
+  @Test
+  public void appendingTwiceToSameSpecDoesNotShareTheNewRow()
+  {
+    GridSpec spec = createSpec().withAppendedRow(1, 0);
+    GridSpec first = spec.withAppendedRow(40, 0);
+    GridSpec second = spec.withAppendedRow(50, 1);
+
+    assertNotSame(first.rowHeights, second.rowHeights);
+    assertEquals(40, first.getRowHeight(3));
+    assertEquals(0, first.getRowWeight(3));
+    assertEquals(50, second.getRowHeight(3));
+    assertEquals(1, second.getRowWeight(3));
+  }
+
+  @Test
+  public void appendedReferenceJoinsGroup()
+  {
+    GridSpec spec = createSpec().withAppendedRow(-1, 0);
+    assertFalse(spec.rowGroups.isEmpty());
+
+    int[] heights = { 20, 35, 0 };
+    spec.rowGroups.apply(heights);
+    assertEquals(35, heights[2]);
+  }
+
+  @Test
+  public void appendedFixedRowKeepsRowsStatic()
+  {
+    GridSpec spec = new GridSpec(new int[] { 10 }, new int[] { 20 }, null,
+        null);
+    GridSpec appended = spec.withAppendedRow(30, 0);
+    assertTrue(appended.rowsStatic);
+    assertEquals(50, appended.fixedHeightSum);
+
+    assertFalse(appended.withAppendedRow(0, 0).rowsStatic);
+    assertSame(spec.colGroups, appended.colGroups);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void referenceToMissingRowIsRejected()
+  {
+    createSpec().withAppendedRow(-3, 0);
+  }
+
+  @Test
+  public void settingRowHeightsGrowsSolverGeometrically()
+  {
+    GridSolver solver = new GridSolver(createSpec());
+    ArrayNodes nodes = new ArrayNodes();
+    int[] last = null;
+    int reallocations = 0;
+    for (int i = 0; i < 1000; i++)
+    {
+      solver.setRowHeight(i + 2, 5);
+      solver.distributeHeight(solver.calcHeights(nodes));
+      int[] y = solver.getRowsY(0);
+      if (y != last)
+        reallocations++;
+      last = y;
+    }
+
+    assertEquals(1002, solver.getRowCount());
+    assertEquals(20 + 1000 * 5, last[1002]);
+    assertTrue("reallocations: " + reallocations, reallocations <= 12);
+  }
+}
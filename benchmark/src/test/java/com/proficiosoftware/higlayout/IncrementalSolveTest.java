@@ -0,0 +1,234 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.proficiosoftware.higlayout.benchmark.ArrayNodes;
+
+/**
+ * A solver that only recomputes the invalidated columns/rows must end up
+ * with the same sizes as a solver that computes everything.
+ */
+public class IncrementalSolveTest
+{
+  private static final int COLUMNS = 8;
+  private static final int ROWS = 12;
+
+  private static GridSolver createSolver()
+  {
+    int[] colWidths = new int[COLUMNS];
+    int[] rowHeights = new int[ROWS];
+    int[] colWeights = new int[COLUMNS];
+    int[] rowWeights = new int[ROWS];
+    colWidths[3] = 20;
+    colWidths[5] = -4;
+    rowHeights[7] = -2;
+    colWeights[0] = 1;
+    rowWeights[1] = 2;
+    return new GridSolver(colWidths, rowHeights, colWeights, rowWeights);
+  }
+
+  private static ArrayNodes createNodes(Random random)
+  {
+    ArrayNodes nodes = new ArrayNodes();
+    for (int y = 0; y < ROWS; y++)
+    {
+      for (int x = 0; x < COLUMNS; x++)
+        nodes.add(x, y, random.nextInt(100), random.nextInt(50));
+    }
+    nodes.add(1, 2, 3, 2, 250, 120);
+    return nodes;
+  }
+
+  @Test
+  public void invalidatedNodeRecomputesOnlyItsColumnAndRow()
+  {
+    ArrayNodes nodes = createNodes(new Random(1));
+    GridSolver solver = createSolver();
+    solve(solver, nodes);
+
+    int node = 2 * COLUMNS + 6;
+    nodes.setPreferredSize(node, 500, 300);
+    solver.invalidateNode(nodes, node);
+    int before = solver.getTracksComputed();
+    solve(solver, nodes);
+
+    assertEquals(2, solver.getTracksComputed() - before);
+    assertSameSizes(nodes, solver);
+  }
+
+  @Test
+  public void shrinkingNodeShrinksItsTracks()
+  {
+    ArrayNodes nodes = createNodes(new Random(2));
+    GridSolver solver = createSolver();
+    int node = 4 * COLUMNS + 2;
+    nodes.setPreferredSize(node, 1000, 1000);
+    solve(solver, nodes);
+
+    nodes.setPreferredSize(node, 0, 0);
+    solver.invalidateNode(nodes, node);
+    solve(solver, nodes);
+
+    assertSameSizes(nodes, solver);
+  }
+
+  @Test
+  public void manyChangesMatchFullSolve()
+  {
+    Random random = new Random(3);
+    ArrayNodes nodes = createNodes(random);
+    GridSolver solver = createSolver();
+    solve(solver, nodes);
+
+    for (int pass = 0; pass < 200; pass++)
+    {
+      for (int k = random.nextInt(3); k >= 0; k--)
+      {
+        int node = random.nextInt(nodes.getNodeCount());
+        nodes.setPreferredSize(node, random.nextInt(300),
+            random.nextInt(300));
+        solver.invalidateNode(nodes, node);
+      }
+      solve(solver, nodes);
+      assertSameSizes(nodes, solver);
+    }
+  }
+
+  @Test
+  public void invalidateIndexPicksUpAddedNodes()
+  {
+    ArrayNodes nodes = createNodes(new Random(4));
+    GridSolver solver = createSolver();
+    solve(solver, nodes);
+
+    nodes.add(6, 9, 700, 400);
+    solver.invalidateIndex();
+    solve(solver, nodes);
+
+    assertSameSizes(nodes, solver);
+  }
+
+  @Test
+  public void gridWithoutSpansMatchesFullSolve()
+  {
+    Random random = new Random(5);
+    ArrayNodes nodes = new ArrayNodes();
+    for (int y = 0; y < ROWS; y++)
+    {
+      for (int x = 0; x < COLUMNS; x++)
+        nodes.add(x, y, random.nextInt(100), random.nextInt(50));
+    }
+    GridSolver solver = createPlainSolver();
+
+    for (int pass = 0; pass < 200; pass++)
+    {
+      int node = random.nextInt(nodes.getNodeCount());
+      nodes.setPreferredSize(node, random.nextInt(300), random.nextInt(300));
+      solver.invalidateNode(nodes, node);
+
+      // stretch only every other pass, the sizes then go back to preferred
+      int slack = pass % 2 == 0 ? 0 : random.nextInt(100) - 20;
+      GridSolver full = createPlainSolver();
+      for (GridSolver s : new GridSolver[] { solver, full })
+      {
+        int width = s.calcWidths(nodes);
+        int height = s.calcHeights(nodes);
+        s.distributeWidth(width + slack);
+        s.distributeHeight(height + slack);
+      }
+      assertArrayEquals(Arrays.copyOf(full.getColumnsX(0), COLUMNS + 1),
+          Arrays.copyOf(solver.getColumnsX(0), COLUMNS + 1));
+      assertArrayEquals(Arrays.copyOf(full.getRowsY(0), ROWS + 1),
+          Arrays.copyOf(solver.getRowsY(0), ROWS + 1));
+    }
+  }
+
+  @Test
+  public void stretchedSizesFollowChangesAtTheSameSize()
+  {
+    Random random = new Random(6);
+    ArrayNodes nodes = new ArrayNodes();
+    for (int y = 0; y < ROWS; y++)
+    {
+      for (int x = 0; x < COLUMNS; x++)
+        nodes.add(x, y, random.nextInt(100), random.nextInt(50));
+    }
+    GridSolver solver = createPlainSolver();
+
+    for (int pass = 0; pass < 200; pass++)
+    {
+      // every other pass the node keeps its size, the stretched sizes of
+      // the previous pass are kept then
+      int node = random.nextInt(nodes.getNodeCount());
+      if (pass % 2 == 0)
+        nodes.setPreferredSize(node, random.nextInt(300), random.nextInt(300));
+      solver.invalidateNode(nodes, node);
+
+      GridSolver full = createPlainSolver();
+      for (GridSolver s : new GridSolver[] { solver, full })
+      {
+        s.calcWidths(nodes);
+        s.calcHeights(nodes);
+        s.distributeWidth(1500);
+        s.distributeHeight(2500);
+      }
+      assertArrayEquals(Arrays.copyOf(full.getColumnsX(0), COLUMNS + 1),
+          Arrays.copyOf(solver.getColumnsX(0), COLUMNS + 1));
+      assertArrayEquals(Arrays.copyOf(full.getRowsY(0), ROWS + 1),
+          Arrays.copyOf(solver.getRowsY(0), ROWS + 1));
+    }
+  }
+
+  @Test
+  public void nodesEstimatedWithTheirColumnsWidthKeepTheColumns()
+  {
+    ArrayNodes nodes = createNodes(new Random(7));
+    GridSolver solver = createSolver();
+    solve(solver, nodes);
+    int[] x = Arrays.copyOf(solver.getColumnsX(0), COLUMNS + 1);
+
+    // like virtualized mode estimates the nodes it did not measure
+    int[] estimates = new int[nodes.getNodeCount()];
+    for (int i = 0; i < estimates.length; i++)
+      estimates[i] = solver.getPreferredColumnsWidth(nodes.getCellX(i),
+          nodes.getSpanX(i));
+    for (int i = 0; i < estimates.length; i++)
+      nodes.setPreferredSize(i, estimates[i], nodes.getPreferredHeight(i));
+    solver.invalidateTracks();
+    solve(solver, nodes);
+    assertArrayEquals(x, Arrays.copyOf(solver.getColumnsX(0), COLUMNS + 1));
+  }
+
+  private static GridSolver createPlainSolver()
+  {
+    GridSpec spec = new GridSpec.Builder().setColumnCount(COLUMNS)
+        .setRowCount(ROWS).setColumnWeight(0, 1).setRowWeight(1, 2)
+        .setRowLimits(3, 40, 0).setRowLimits(4, 0, 30).build();
+    return new GridSolver(spec);
+  }
+
+  private static void solve(GridSolver solver, GridNodes nodes)
+  {
+    int width = solver.calcWidths(nodes);
+    int height = solver.calcHeights(nodes);
+    solver.distributeWidth(width + 50);
+    solver.distributeHeight(height + 50);
+  }
+
+  private static void assertSameSizes(GridNodes nodes, GridSolver solver)
+  {
+    GridSolver full = createSolver();
+    solve(full, nodes);
+
+    assertArrayEquals(Arrays.copyOf(full.getColumnsX(0), COLUMNS + 1),
+        Arrays.copyOf(solver.getColumnsX(0), COLUMNS + 1));
+    assertArrayEquals(Arrays.copyOf(full.getRowsY(0), ROWS + 1),
+        Arrays.copyOf(solver.getRowsY(0), ROWS + 1));
+  }
+}
@@ -0,0 +1,126 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SizeDistributorTest
+{
+  private final SizeDistributor mDistributor = new SizeDistributor();
+
+  @Test
+  public void leftOverPixelsGoToLargestRemainders()
+  {
+    int[] lengths = { 0, 0, 0 };
+    assertTrue(distribute(40, lengths, new int[] { 1, 1, 1 },
+        TrackLimits.NONE));
+    assertArrayEquals(new int[] { 14, 13, 13 }, lengths);
+
+    lengths = new int[] { 0, 0, 0 };
+    distribute(10, lengths, new int[] { 1, 2, 4 }, TrackLimits.NONE);
+    // shares 1.43, 2.86 and 5.71: the pixel left goes to the second
+    assertArrayEquals(new int[] { 1, 3, 6 }, lengths);
+  }
+
+  @Test
+  public void unweightedTracksKeepTheirLength()
+  {
+    int[] lengths = { 5, 5, 10 };
+    distribute(50, lengths, new int[] { 1, 2, 0 }, TrackLimits.NONE);
+    assertArrayEquals(new int[] { 15, 25, 10 }, lengths);
+  }
+
+  @Test
+  public void trackAtMaximumLeavesRestToOthers()
+  {
+    int[] lengths = { 0, 0, 0 };
+    distribute(40, lengths, new int[] { 1, 1, 1 },
+        TrackLimits.create(null, new int[] { 12 }));
+    assertArrayEquals(new int[] { 12, 14, 14 }, lengths);
+  }
+
+  @Test
+  public void allTracksAtMaximumFallShort()
+  {
+    int[] lengths = { 0, 0 };
+    assertTrue(distribute(100, lengths, new int[] { 1, 1 },
+        TrackLimits.create(null, new int[] { 10, 20 })));
+    assertArrayEquals(new int[] { 10, 20 }, lengths);
+  }
+
+  @Test
+  public void shrinkingStopsAtMinimumAndZero()
+  {
+    int[] lengths = { 10, 10, 10 };
+    distribute(0, lengths, new int[] { 1, 1, 1 },
+        TrackLimits.create(new int[] { 8 }, null));
+    assertArrayEquals(new int[] { 8, 0, 0 }, lengths);
+
+    lengths = new int[] { 10, 30 };
+    distribute(20, lengths, new int[] { 1, 1 }, TrackLimits.NONE);
+    // 10 each, the first track then has no room left
+    assertArrayEquals(new int[] { 0, 20 }, lengths);
+  }
+
+  @Test
+  public void nothingChangesWithoutDifferenceOrWeights()
+  {
+    int[] lengths = { 10, 20 };
+    assertFalse(distribute(30, lengths, new int[] { 1, 1 },
+        TrackLimits.NONE));
+    assertFalse(distribute(50, lengths, new int[] { 0, 0 },
+        TrackLimits.NONE));
+    assertArrayEquals(new int[] { 10, 20 }, lengths);
+  }
+
+  @Test
+  public void noPixelIsLost()
+  {
+    Random random = new Random(5);
+    for (int pass = 0; pass < 1000; pass++)
+    {
+      int count = 1 + random.nextInt(12);
+      int[] lengths = new int[count];
+      int[] weights = new int[count];
+      int[] max = new int[count];
+      int sum = 0;
+      for (int i = 0; i < count; i++)
+      {
+        lengths[i] = random.nextInt(50);
+        weights[i] = random.nextInt(4);
+        max[i] = random.nextInt(3) == 0 ? lengths[i] + random.nextInt(30)
+            : 0;
+        sum += lengths[i];
+      }
+      weights[0] = 1;
+      max[0] = 0;
+      int desired = sum + random.nextInt(500);
+      int[] original = lengths.clone();
+
+      distribute(desired, lengths, weights, TrackLimits.create(null, max));
+
+      int total = 0;
+      for (int i = 0; i < count; i++)
+      {
+        total += lengths[i];
+        if (weights[i] == 0)
+          assertEquals(original[i], lengths[i]);
+        if (max[i] > 0)
+          assertTrue(lengths[i] <= max[i]);
+      }
+      assertEquals(desired, total);
+    }
+  }
+
+  private boolean distribute(int desired, int[] lengths, int[] weights,
+      TrackLimits limits)
+  {
+    return mDistributor.distribute(desired, lengths, weights, lengths.length,
+        limits);
+  }
+}
@@ -0,0 +1,112 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.proficiosoftware.higlayout.benchmark.ArrayNodes;
+
+/**
+ * Nodes spanning several columns/rows widen the auto sized tracks they span.
+ */
+public class SpanTest
+{
+  @Test
+  public void missingSpaceIsSplitEvenlyWithoutWeights()
+  {
+    ArrayNodes nodes = singles(10, 20, 30);
+    nodes.add(0, 0, 3, 1, 100, 0);
+    // 40 missing: 13 each, the pixel left goes to the first column
+    assertArrayEquals(new int[] { 24, 33, 43 },
+        widths(new int[] { 0, 0, 0 }, null, nodes));
+  }
+
+  @Test
+  public void missingSpaceIsSplitByWeight()
+  {
+    ArrayNodes nodes = singles(10, 20, 30);
+    nodes.add(0, 0, 3, 1, 100, 0);
+    assertArrayEquals(new int[] { 20, 20, 60 },
+        widths(new int[] { 0, 0, 0 }, new int[] { 1, 0, 3 }, nodes));
+  }
+
+  @Test
+  public void fixedTracksKeepTheirSize()
+  {
+    ArrayNodes nodes = singles(10, 0, 10);
+    nodes.add(0, 0, 3, 1, 100, 0);
+    assertArrayEquals(new int[] { 40, 20, 40 },
+        widths(new int[] { 0, 20, 0 }, null, nodes));
+  }
+
+  @Test
+  public void nodeThatFitsChangesNothing()
+  {
+    ArrayNodes nodes = singles(10, 20, 30);
+    nodes.add(0, 0, 2, 1, 25, 0);
+    assertArrayEquals(new int[] { 10, 20, 30 },
+        widths(new int[] { 0, 0, 0 }, null, nodes));
+  }
+
+  @Test
+  public void narrowerSpansAreFittedFirst()
+  {
+    ArrayNodes nodes = singles(0, 0, 0);
+    nodes.add(0, 0, 3, 1, 90, 0);
+    nodes.add(0, 0, 2, 1, 60, 0);
+    // the 2 column node makes [30, 30, 0], the 3 column node then adds 10
+    // to each column
+    assertArrayEquals(new int[] { 40, 40, 10 },
+        widths(new int[] { 0, 0, 0 }, null, nodes));
+  }
+
+  @Test
+  public void spanBeyondGridIsCutOff()
+  {
+    ArrayNodes nodes = singles(10, 10, 10);
+    nodes.add(1, 0, 5, 1, 60, 0);
+    assertArrayEquals(new int[] { 10, 30, 30 },
+        widths(new int[] { 0, 0, 0 }, null, nodes));
+  }
+
+  @Test
+  public void rowsAreFittedLikeColumns()
+  {
+    ArrayNodes nodes = new ArrayNodes();
+    nodes.add(0, 0, 0, 10);
+    nodes.add(0, 1, 0, 20);
+    nodes.add(0, 0, 1, 2, 0, 50);
+    GridSolver solver = new GridSolver(new int[] { 0 }, new int[] { 0, 0 },
+        null, new int[] { 0, 1 });
+    assertEquals(50, solver.calcHeights(nodes));
+    solver.calcWidths(nodes);
+    int[] widths = new int[1];
+    int[] heights = new int[2];
+    solver.copyComputedSizes(widths, heights);
+    assertArrayEquals(new int[] { 10, 40 }, heights);
+  }
+
+  /**
+   * One node in each column of the first row.
+   */
+  private static ArrayNodes singles(int... widths)
+  {
+    ArrayNodes nodes = new ArrayNodes();
+    for (int x = 0; x < widths.length; x++)
+      nodes.add(x, 0, widths[x], 0);
+    return nodes;
+  }
+
+  private static int[] widths(int[] colWidths, int[] colWeights,
+      GridNodes nodes)
+  {
+    GridSolver solver = new GridSolver(colWidths, new int[] { 0 },
+        colWeights, null);
+    solver.calcWidths(nodes);
+    solver.calcHeights(nodes);
+    int[] widths = new int[colWidths.length];
+    solver.copyComputedSizes(widths, new int[1]);
+    return widths;
+  }
+}
@@ -0,0 +1,77 @@
+package com.proficiosoftware.higlayout;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class TrackGroupsTest
+{
+  @Test
+  public void noReferencesCompileToNone()
+  {
+    int[] g = { 0, 20, 0 };
+    assertSame(TrackGroups.NONE, TrackGroups.compile(g, g.length));
+  }
+
+  @Test
+  public void chainTakesSizeOfTrackReferencingNothing()
+  {
+    // 1 -> 2, 3 -> 1
+    int[] g = { 0, -2, 0, -1, 0 };
+    TrackGroups groups = TrackGroups.compile(g, g.length);
+    assertFalse(groups.isEmpty());
+
+    int[] lengths = { 5, 7, 9, 3, 4 };
+    groups.apply(lengths);
+    assertArrayEquals(new int[] { 5, 9, 9, 9, 4 }, lengths);
+  }
+
+  @Test
+  public void cycleTakesSizeOfLargestTrackInCycle()
+  {
+    // 1 -> 2 -> 1
+    int[] g = { 0, -2, -1 };
+    int[] lengths = { 1, 4, 6 };
+    TrackGroups.compile(g, g.length).apply(lengths);
+    assertArrayEquals(new int[] { 1, 6, 6 }, lengths);
+  }
+
+  @Test
+  public void trackLeadingIntoCycleDoesNotSizeIt()
+  {
+    // 1 -> 2 -> 3 -> 2
+    int[] g = { 0, -2, -3, -2 };
+    int[] lengths = { 0, 50, 3, 8 };
+    TrackGroups.compile(g, g.length).apply(lengths);
+    assertArrayEquals(new int[] { 0, 8, 8, 8 }, lengths);
+  }
+
+  @Test
+  public void separateGroupsKeepTheirOwnSize()
+  {
+    // 1 -> 3, 2 -> 4
+    int[] g = { 0, -3, -4, 0, 0 };
+    int[] lengths = { 1, 2, 3, 10, 20 };
+    TrackGroups.compile(g, g.length).apply(lengths);
+    assertArrayEquals(new int[] { 1, 10, 20, 10, 20 }, lengths);
+  }
+
+  @Test
+  public void fixedSourceSizesTheGroup()
+  {
+    // 0 -> 2 where 2 has a fixed size, the solver puts it in lengths
+    int[] g = { -2, 0, 30 };
+    int[] lengths = { 45, 0, 30 };
+    TrackGroups.compile(g, g.length).apply(lengths);
+    assertArrayEquals(new int[] { 30, 0, 30 }, lengths);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void referenceBeyondLastTrackIsRejected()
+  {
+    int[] g = { 0, -5 };
+    TrackGroups.compile(g, g.length);
+  }
+}
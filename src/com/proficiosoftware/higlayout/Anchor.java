@@ -0,0 +1,83 @@
+package com.proficiosoftware.higlayout;
+
+/*
+ * Anchor.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * Compiles anchor strings to flags. Along each axis a single letter anchors
+ * the child to that side and a second letter, e.g. "lr" or "ll", stretches it
+ * to both sides. An axis without letters centres the child.
+ */
+final class Anchor
+{
+  static final int LEFT = 1;
+  static final int RIGHT = 2;
+  static final int TOP = 4;
+  static final int BOTTOM = 8;
+  static final int HORIZONTAL = LEFT | RIGHT;
+  static final int VERTICAL = TOP | BOTTOM;
+
+  private Anchor()
+  {
+  }
+
+  /**
+   * @throws IllegalArgumentException
+   *           when the anchor contains other characters than l, r, t and b
+   */
+  static int compile(String anchor)
+  {
+    int flags = 0;
+    if (anchor == null)
+      return flags;
+    // letters seen per axis, the second one stretches
+    int horizontal = 0;
+    int vertical = 0;
+    for (int j = anchor.length() - 1; j >= 0; j--)
+    {
+      switch (anchor.charAt(j))
+      {
+        case 'l':
+          flags |= LEFT;
+          horizontal++;
+          break;
+        case 'r':
+          flags |= RIGHT;
+          horizontal++;
+          break;
+        case 't':
+          flags |= TOP;
+          vertical++;
+          break;
+        case 'b':
+          flags |= BOTTOM;
+          vertical++;
+          break;
+        default:
+          throw new IllegalArgumentException("Wrong character in anchor: "
+              + anchor);
+      }
+    }
+    if (horizontal > 1)
+      flags |= HORIZONTAL;
+    if (vertical > 1)
+      flags |= VERTICAL;
+    return flags;
+  }
+}
@@ -0,0 +1,195 @@
+package com.proficiosoftware.higlayout;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/*
+ * ColumnGroup.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * Column widths shared by several grids with the same columns, e.g. the rows
+ * of a list, so that their columns line up. The widths are solved once per
+ * data change:
+ *
+ * 1. After the group is created or reset() every member solved adds the
+ *    widths of its own columns, the group keeps the maximum width of each
+ *    column and the members use those widths.
+ * 2. solve() ends this. Members solved from then on, e.g. rows bound later,
+ *    take the widths of the group without solving their columns. A column
+ *    of such a member that needs more room than the group gives it is
+ *    clipped. Members solved before with narrower widths are told to layout
+ *    again, once.
+ *
+ * HIGLayout calls solve() after the frame its members were first laid out
+ * in. Call reset() when the data shown by the members changes so that the
+ * columns are solved again.
+ *
+ * A group must only be used from a single thread, usually the UI thread.
+ *
+ * @see HIGLayout#setColumnGroup(ColumnGroup)
+ * @see GridSolver#setColumnGroup(ColumnGroup)
+ */
+public final class ColumnGroup
+{
+  /**
+   * Called when the widths of the group changed and members solved earlier
+   * are out of date.
+   */
+  public interface OnWidthsChangedListener
+  {
+    void onColumnWidthsChanged(ColumnGroup group);
+  }
+
+  private final int mColCount;
+  private final int[] mWidths;
+
+  // Incremented each time the widths change
+  private int mVersion = 0;
+
+  // Set by solve(), members then take the widths as they are
+  private boolean mSolved = false;
+
+  // Members are held weakly so that rows thrown away by a list don't have to
+  // leave the group
+  private final ArrayList<WeakReference<OnWidthsChangedListener>> mListeners =
+      new ArrayList<WeakReference<OnWidthsChangedListener>>();
+
+  /**
+   * @param colCount
+   *          the number of columns of all members
+   */
+  public ColumnGroup(int colCount)
+  {
+    mColCount = colCount;
+    mWidths = new int[colCount];
+  }
+
+  public int getColumnCount()
+  {
+    return mColCount;
+  }
+
+  /**
+   * @return the current width of a column
+   */
+  public int getColumnWidth(int col)
+  {
+    return mWidths[col];
+  }
+
+  /**
+   * @return a number that changes each time the widths change
+   */
+  public int getVersion()
+  {
+    return mVersion;
+  }
+
+  /**
+   * @return true when the widths are solved, members take them without
+   *         solving their columns
+   */
+  public boolean isSolved()
+  {
+    return mSolved;
+  }
+
+  /**
+   * Ends adding the widths of the members. Members solved from now on take
+   * the widths of the group, members solved before with other widths are
+   * told to layout again. Does nothing when the widths are solved already.
+   */
+  public void solve()
+  {
+    if (mSolved)
+      return;
+    mSolved = true;
+    notifyListeners();
+  }
+
+  /**
+   * Forgets the widths of all members. Members lay out again and add their
+   * widths anew until solve() is called.
+   */
+  public void reset()
+  {
+    for (int i = 0; i < mColCount; i++)
+      mWidths[i] = 0;
+    mSolved = false;
+    mVersion++;
+    notifyListeners();
+  }
+
+  public void addListener(OnWidthsChangedListener listener)
+  {
+    mListeners.add(new WeakReference<OnWidthsChangedListener>(listener));
+  }
+
+  public void removeListener(OnWidthsChangedListener listener)
+  {
+    for (int i = mListeners.size() - 1; i >= 0; i--)
+    {
+      OnWidthsChangedListener l = mListeners.get(i).get();
+      if (l == null || l == listener)
+        mListeners.remove(i);
+    }
+  }
+
+  /**
+   * Widens the columns of the group to the given widths. Members solved
+   * earlier are only told by solve().
+   *
+   * @return true when a column became wider
+   */
+  boolean merge(int[] widths)
+  {
+    boolean changed = false;
+    for (int i = 0; i < mColCount; i++)
+    {
+      if (widths[i] > mWidths[i])
+      {
+        mWidths[i] = widths[i];
+        changed = true;
+      }
+    }
+    if (changed)
+      mVersion++;
+    return changed;
+  }
+
+  /**
+   * Copies the widths of the group to the given array.
+   */
+  void copyWidths(int[] widths)
+  {
+    System.arraycopy(mWidths, 0, widths, 0, mColCount);
+  }
+
+  void notifyListeners()
+  {
+    for (int i = mListeners.size() - 1; i >= 0; i--)
+    {
+      OnWidthsChangedListener l = mListeners.get(i).get();
+      if (l == null)
+        mListeners.remove(i);
+      else
+        l.onColumnWidthsChanged(this);
+    }
+  }
+}
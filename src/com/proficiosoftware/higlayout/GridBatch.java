@@ -0,0 +1,211 @@
+package com.proficiosoftware.higlayout;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * GridBatch.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * Solves many grids at once without android, e.g. to render thumbnails or
+ * print layouts of many screens on a server. The batch runs a number of
+ * workers on an Executor. Each worker reuses one GridSolver and takes small
+ * ranges of jobs until none are left, so workers that finish early take
+ * over the rest.
+ *
+ * A batch is safe to call from several threads. Specs may be shared between
+ * jobs, the nodes must not change while the batch runs.
+ *
+ * @see GridSolution#compute(GridSpec, GridNodes, int, int)
+ */
+public final class GridBatch
+{
+  // Ranges per worker, more ranges balance better when jobs differ in size
+  private static final int RANGES_PER_WORKER = 4;
+
+  private final Executor mExecutor;
+  private final int mWorkers;
+
+  /**
+   * @param executor
+   *          the threads to solve the grids on, e.g. a fixed thread pool
+   * @param workers
+   *          the number of workers to run at once, usually the number of
+   *          threads of the executor
+   */
+  public GridBatch(Executor executor, int workers)
+  {
+    if (workers < 1)
+      throw new IllegalArgumentException("Need at least one worker: "
+          + workers);
+    mExecutor = executor;
+    mWorkers = workers;
+  }
+
+  /**
+   * Solves all jobs and waits for the solutions. A job with nodes outside
+   * its grid fails the whole batch with its exception.
+   *
+   * @return the solutions in the order of the jobs, the list can't be
+   *         modified
+   * @throws InterruptedException
+   *           when the calling thread is interrupted while waiting, the
+   *           workers still finish
+   */
+  public List<GridSolution> solve(List<Job> jobs) throws InterruptedException
+  {
+    Job[] input = jobs.toArray(new Job[jobs.size()]);
+    GridSolution[] output = new GridSolution[input.length];
+    if (input.length > 0)
+    {
+      int workers = Math.min(mWorkers, input.length);
+      int range = Math.max(1, input.length / (workers * RANGES_PER_WORKER));
+      Worker[] started = new Worker[workers];
+      CountDownLatch done = new CountDownLatch(workers);
+      AtomicInteger next = new AtomicInteger();
+      for (int i = 0; i < workers; i++)
+      {
+        started[i] = new Worker(input, output, next, range, done);
+        mExecutor.execute(started[i]);
+      }
+      done.await();
+      for (int i = 0; i < workers; i++)
+        started[i].rethrow();
+    }
+    return Collections.unmodifiableList(Arrays.asList(output));
+  }
+
+  /**
+   * A grid to solve: the spec, the nodes with their preferred sizes and the
+   * size to stretch the grid to. Jobs are immutable.
+   */
+  public static final class Job
+  {
+    final GridSpec spec;
+    final GridNodes nodes;
+    final int width;
+    final int height;
+
+    /**
+     * @param width
+     *          the width of the grid or GridSolution.WRAP_CONTENT
+     * @param height
+     *          the height of the grid or GridSolution.WRAP_CONTENT
+     */
+    public Job(GridSpec spec, GridNodes nodes, int width, int height)
+    {
+      this.spec = spec;
+      this.nodes = nodes;
+      this.width = width;
+      this.height = height;
+    }
+
+    public GridSpec getSpec()
+    {
+      return spec;
+    }
+
+    public GridNodes getNodes()
+    {
+      return nodes;
+    }
+
+    public int getWidth()
+    {
+      return width;
+    }
+
+    public int getHeight()
+    {
+      return height;
+    }
+  }
+
+  /**
+   * Takes ranges of jobs until all are taken and solves them with its own
+   * solver.
+   */
+  private static final class Worker implements Runnable
+  {
+    private final Job[] mJobs;
+    private final GridSolution[] mSolutions;
+    private final AtomicInteger mNext;
+    private final int mRange;
+    private final CountDownLatch mDone;
+    private Throwable mFailure;
+
+    Worker(Job[] jobs, GridSolution[] solutions, AtomicInteger next,
+        int range, CountDownLatch done)
+    {
+      mJobs = jobs;
+      mSolutions = solutions;
+      mNext = next;
+      mRange = range;
+      mDone = done;
+    }
+
+    @Override
+    public void run()
+    {
+      try
+      {
+        GridSolver solver = null;
+        int from;
+        while ((from = mNext.getAndAdd(mRange)) < mJobs.length)
+        {
+          int to = Math.min(from + mRange, mJobs.length);
+          for (int i = from; i < to; i++)
+          {
+            Job job = mJobs[i];
+            if (solver == null)
+              solver = new GridSolver(job.spec);
+            mSolutions[i] = GridSolution.compute(solver, job.spec, job.nodes,
+                job.width, job.height);
+          }
+        }
+      }
+      catch (Throwable t)
+      {
+        // the other workers stop after their current range
+        mNext.set(mJobs.length);
+        mFailure = t;
+      }
+      finally
+      {
+        mDone.countDown();
+      }
+    }
+
+    /**
+     * Throws the exception the worker failed with, if any. The latch makes
+     * the failure visible to the waiting thread.
+     */
+    void rethrow()
+    {
+      if (mFailure instanceof RuntimeException)
+        throw (RuntimeException)mFailure;
+      if (mFailure instanceof Error)
+        throw (Error)mFailure;
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package com.proficiosoftware.higlayout;
+
+/*
+ * GridGeometry.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * Read-only snapshot of the column and row edges of a solved grid and the
+ * cells of its nodes. Finding the cell or the nodes at a position uses binary
+ * search over the edges, so hit testing doesn't have to loop over all nodes.
+ * Nodes in a single cell are listed by cell, nodes spanning several cells by
+ * each row they cross. A lookup takes O(log n) for the cell plus the nodes
+ * in the cell and the spanning nodes crossing its row.
+ *
+ * A snapshot never changes. Compare getVersion() with the version of the
+ * layout to find out whether it is still up to date.
+ *
+ * @see HIGLayout#getGeometry()
+ * @see GridSolver#createGeometry(GridNodes, int, int, int)
+ */
+public final class GridGeometry
+{
+  private final int mVersion;
+  private final int mColCount;
+  private final int mRowCount;
+  private final int[] mColumnsX;
+  private final int[] mRowsY;
+
+  // cell and span of every node
+  private final int[] mCellX;
+  private final int[] mCellY;
+  private final int[] mSpanX;
+  private final int[] mSpanY;
+
+  // nodes in a single cell by cell, row by row. The nodes of the cell at
+  // col, row are mCellNodes[mCellStart[i]] .. mCellNodes[mCellStart[i + 1] -
+  // 1] with i = row * colCount + col
+  private final int[] mCellStart;
+  private final int[] mCellNodes;
+
+  // nodes spanning several cells by the rows they cross, stored the same way
+  private final int[] mSpanRowStart;
+  private final int[] mSpanRowNodes;
+
+  /**
+   * Takes ownership of the arrays and indexes the nodes by cell. Spans
+   * beyond the grid are cut off.
+   */
+  GridGeometry(int version, int colCount, int rowCount, int[] columnsX,
+      int[] rowsY, int[] cellX, int[] cellY, int[] spanX, int[] spanY)
+  {
+    mVersion = version;
+    mColCount = colCount;
+    mRowCount = rowCount;
+    mColumnsX = columnsX;
+    mRowsY = rowsY;
+    mCellX = cellX;
+    mCellY = cellY;
+    mSpanX = spanX;
+    mSpanY = spanY;
+
+    // count the nodes per cell/row in start[i + 1]
+    int nodeCount = cellX.length;
+    int[] cellStart = new int[colCount * rowCount + 1];
+    int[] spanRowStart = new int[rowCount + 1];
+    for (int j = 0; j < nodeCount; j++)
+    {
+      if (spanX[j] == 1 && spanY[j] == 1)
+        cellStart[cellY[j] * colCount + cellX[j] + 1]++;
+      else
+      {
+        for (int r = cellY[j], end = lastRow(j); r <= end; r++)
+          spanRowStart[r + 1]++;
+      }
+    }
+    for (int i = 1; i < cellStart.length; i++)
+      cellStart[i] += cellStart[i - 1];
+    for (int i = 1; i <= rowCount; i++)
+      spanRowStart[i] += spanRowStart[i - 1];
+
+    // fill from the back so the nodes of a cell/row stay in order,
+    // afterwards start[i] holds the start of cell/row i
+    int[] cellNodes = new int[cellStart[cellStart.length - 1]];
+    int[] spanRowNodes = new int[spanRowStart[rowCount]];
+    for (int j = nodeCount - 1; j >= 0; j--)
+    {
+      if (spanX[j] == 1 && spanY[j] == 1)
+        cellNodes[--cellStart[cellY[j] * colCount + cellX[j] + 1]] = j;
+      else
+      {
+        for (int r = cellY[j], end = lastRow(j); r <= end; r++)
+          spanRowNodes[--spanRowStart[r + 1]] = j;
+      }
+    }
+    mCellStart = shift(cellStart, cellNodes.length);
+    mCellNodes = cellNodes;
+    mSpanRowStart = shift(spanRowStart, spanRowNodes.length);
+    mSpanRowNodes = spanRowNodes;
+  }
+
+  /**
+   * @return the last row a node covers within the grid
+   */
+  private int lastRow(int node)
+  {
+    return Math.min(mCellY[node] + mSpanY[node], mRowCount) - 1;
+  }
+
+  /**
+   * Moves start[i + 1], which holds the start of cell/row i after filling,
+   * to start[i] and sets the last entry to the total.
+   */
+  private static int[] shift(int[] start, int total)
+  {
+    for (int i = 0; i < start.length - 1; i++)
+      start[i] = start[i + 1];
+    start[start.length - 1] = total;
+    return start;
+  }
+
+  /**
+   * @return the version of the layout this snapshot was taken from
+   */
+  public int getVersion()
+  {
+    return mVersion;
+  }
+
+  public int getColumnCount()
+  {
+    return mColCount;
+  }
+
+  public int getRowCount()
+  {
+    return mRowCount;
+  }
+
+  public int getNodeCount()
+  {
+    return mCellX.length;
+  }
+
+  /**
+   * @return the left edge of a column. getColumnX(getColumnCount()) is the
+   *         right edge of the last column.
+   */
+  public int getColumnX(int col)
+  {
+    return mColumnsX[col];
+  }
+
+  /**
+   * @return the top edge of a row. getRowY(getRowCount()) is the bottom edge
+   *         of the last row.
+   */
+  public int getRowY(int row)
+  {
+    return mRowsY[row];
+  }
+
+  /**
+   * @return the column containing x or -1 when x is outside the grid
+   */
+  public int getColumnAt(int x)
+  {
+    if (mColCount == 0 || x < mColumnsX[0] || x >= mColumnsX[mColCount])
+      return -1;
+    return GridSolver.findTrack(mColumnsX, mColCount, x);
+  }
+
+  /**
+   * @return the row containing y or -1 when y is outside the grid
+   */
+  public int getRowAt(int y)
+  {
+    if (mRowCount == 0 || y < mRowsY[0] || y >= mRowsY[mRowCount])
+      return -1;
+    return GridSolver.findTrack(mRowsY, mRowCount, y);
+  }
+
+  /**
+   * Finds the nodes whose target area covers a cell.
+   *
+   * @param nodes
+   *          receives the nodes, as many as fit
+   * @return the number of nodes covering the cell, may be more than fit in
+   *         nodes
+   */
+  public int getNodesAt(int col, int row, int[] nodes)
+  {
+    if (col < 0 || col >= mColCount || row < 0 || row >= mRowCount)
+      return 0;
+
+    int n = 0;
+    int cell = row * mColCount + col;
+    for (int k = mCellStart[cell]; k < mCellStart[cell + 1]; k++)
+    {
+      if (n < nodes.length)
+        nodes[n] = mCellNodes[k];
+      n++;
+    }
+    for (int k = mSpanRowStart[row]; k < mSpanRowStart[row + 1]; k++)
+    {
+      int node = mSpanRowNodes[k];
+      if (mCellX[node] <= col && mCellX[node] + mSpanX[node] > col)
+      {
+        if (n < nodes.length)
+          nodes[n] = node;
+        n++;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Finds the topmost node whose target area contains a point. Nodes added
+   * later are drawn on top of earlier ones.
+   *
+   * @return the node or -1 when no node covers the point
+   */
+  public int getNodeAt(int x, int y)
+  {
+    int col = getColumnAt(x);
+    int row = getRowAt(y);
+    if (col < 0 || row < 0)
+      return -1;
+
+    // the nodes of a cell/row are in order, the last one is on top
+    int cell = row * mColCount + col;
+    int found = mCellStart[cell + 1] > mCellStart[cell]
+        ? mCellNodes[mCellStart[cell + 1] - 1] : -1;
+    for (int k = mSpanRowStart[row + 1] - 1; k >= mSpanRowStart[row]; k--)
+    {
+      int node = mSpanRowNodes[k];
+      if (node <= found)
+        break;
+      if (mCellX[node] <= col && mCellX[node] + mSpanX[node] > col)
+        return node;
+    }
+    return found;
+  }
+
+  public int getCellX(int node)
+  {
+    return mCellX[node];
+  }
+
+  public int getCellY(int node)
+  {
+    return mCellY[node];
+  }
+
+  public int getSpanX(int node)
+  {
+    return mSpanX[node];
+  }
+
+  public int getSpanY(int node)
+  {
+    return mSpanY[node];
+  }
+}
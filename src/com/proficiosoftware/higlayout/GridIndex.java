@@ -0,0 +1,189 @@
+package com.proficiosoftware.higlayout;
+
+/*
+ * GridIndex.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * Lists the nodes per column and per row in compressed sparse row form. The
+ * nodes of column c are colNodes[colStart[c]] .. colNodes[colStart[c + 1] - 1].
+ * Rows are stored the same way. Only nodes occupying a single column/row are
+ * listed there.
+ *
+ * Nodes spanning several columns/rows are listed separately, ordered by
+ * increasing span, in the order the solver widens the tracks for them.
+ *
+ * Additionally all nodes are listed by the row they start in, including nodes
+ * spanning several rows, to find the nodes in a range of rows.
+ *
+ * The index only depends on the cells and spans of the nodes, so it only has
+ * to be rebuilt when nodes are added, removed or moved. Buffers are reused
+ * between builds.
+ */
+final class GridIndex
+{
+  int[] colStart = new int[1];
+  int[] colNodes = new int[0];
+  int[] rowStart = new int[1];
+  int[] rowNodes = new int[0];
+  int[] cellRowStart = new int[1];
+  int[] cellRowNodes = new int[0];
+  int maxSpanY = 1;
+
+  // nodes spanning several columns/rows by increasing span
+  int[] colSpanNodes = new int[0];
+  int[] rowSpanNodes = new int[0];
+  int colSpanCount = 0;
+  int rowSpanCount = 0;
+
+  // number of nodes per span, used to sort them
+  private int[] mSpanStart = new int[0];
+
+  /**
+   * Rebuilds the index for the given nodes.
+   */
+  void build(GridNodes nodes, int colCount, int rowCount)
+  {
+    int nodeCount = nodes.getNodeCount();
+
+    if (colStart.length < colCount + 1)
+      colStart = new int[colCount + 1];
+    if (rowStart.length < rowCount + 1)
+    {
+      rowStart = new int[rowCount + 1];
+      cellRowStart = new int[rowCount + 1];
+    }
+    if (colNodes.length < nodeCount)
+    {
+      colNodes = new int[nodeCount];
+      rowNodes = new int[nodeCount];
+      cellRowNodes = new int[nodeCount];
+      colSpanNodes = new int[nodeCount];
+      rowSpanNodes = new int[nodeCount];
+    }
+
+    for (int i = 0; i <= colCount; i++)
+      colStart[i] = 0;
+    for (int i = 0; i <= rowCount; i++)
+    {
+      rowStart[i] = 0;
+      cellRowStart[i] = 0;
+    }
+
+    // count the nodes per track in start[track + 1]
+    maxSpanY = 1;
+    for (int j = 0; j < nodeCount; j++)
+    {
+      if (nodes.getSpanX(j) == 1)
+        colStart[nodes.getCellX(j) + 1]++;
+      int spanY = nodes.getSpanY(j);
+      if (spanY == 1)
+        rowStart[nodes.getCellY(j) + 1]++;
+      else if (spanY > maxSpanY)
+        maxSpanY = spanY;
+      cellRowStart[nodes.getCellY(j) + 1]++;
+    }
+
+    // turn the counts into end positions
+    for (int i = 1; i <= colCount; i++)
+      colStart[i] += colStart[i - 1];
+    for (int i = 1; i <= rowCount; i++)
+    {
+      rowStart[i] += rowStart[i - 1];
+      cellRowStart[i] += cellRowStart[i - 1];
+    }
+    int colTotal = colStart[colCount];
+    int rowTotal = rowStart[rowCount];
+
+    // fill from the back, afterwards start[track + 1] holds the start of the
+    // track
+    for (int j = nodeCount - 1; j >= 0; j--)
+    {
+      if (nodes.getSpanX(j) == 1)
+        colNodes[--colStart[nodes.getCellX(j) + 1]] = j;
+      if (nodes.getSpanY(j) == 1)
+        rowNodes[--rowStart[nodes.getCellY(j) + 1]] = j;
+      cellRowNodes[--cellRowStart[nodes.getCellY(j) + 1]] = j;
+    }
+
+    shift(colStart, colCount, colTotal);
+    shift(rowStart, rowCount, rowTotal);
+    shift(cellRowStart, rowCount, nodeCount);
+
+    colSpanCount = sortBySpan(nodes, true, colCount, colSpanNodes);
+    rowSpanCount = sortBySpan(nodes, false, rowCount, rowSpanNodes);
+  }
+
+  /**
+   * Lists the nodes spanning more than one column/row by increasing span.
+   * Nodes with the same span keep their order.
+   *
+   * @return the number of nodes listed
+   */
+  private int sortBySpan(GridNodes nodes, boolean columns, int trackCount,
+      int[] sorted)
+  {
+    int nodeCount = nodes.getNodeCount();
+    if (mSpanStart.length < trackCount + 1)
+      mSpanStart = new int[trackCount + 1];
+    int[] start = mSpanStart;
+    for (int i = 0; i <= trackCount; i++)
+      start[i] = 0;
+
+    // count the nodes per span, spans beyond the grid count as the whole grid
+    int total = 0;
+    for (int j = 0; j < nodeCount; j++)
+    {
+      int span = columns ? nodes.getSpanX(j) : nodes.getSpanY(j);
+      if (span > 1)
+      {
+        start[Math.min(span, trackCount)]++;
+        total++;
+      }
+    }
+    if (total == 0)
+      return 0;
+
+    // turn the counts into start positions and fill from the front
+    int pos = 0;
+    for (int i = 0; i <= trackCount; i++)
+    {
+      int n = start[i];
+      start[i] = pos;
+      pos += n;
+    }
+    for (int j = 0; j < nodeCount; j++)
+    {
+      int span = columns ? nodes.getSpanX(j) : nodes.getSpanY(j);
+      if (span > 1)
+        sorted[start[Math.min(span, trackCount)]++] = j;
+    }
+    return total;
+  }
+
+  /**
+   * Moves start[track + 1] to start[track] and closes the array with the
+   * total number of nodes.
+   */
+  private static void shift(int[] start, int count, int total)
+  {
+    for (int i = 0; i < count; i++)
+      start[i] = start[i + 1];
+    start[count] = total;
+  }
+}
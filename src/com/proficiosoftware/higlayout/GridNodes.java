@@ -0,0 +1,69 @@
+package com.proficiosoftware.higlayout;
+
+/*
+ * GridNodes.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * The nodes (children) placed in a grid as seen by the GridSolver. A node
+ * only has a cell, a span and a preferred size. Nodes are addressed by index
+ * so that implementations don't have to allocate wrapper objects.
+ *
+ * A node with a fixed size (a negative span in XML) reports a span of 1 and
+ * the fixed size as its preferred size. A node that is not visible reports a
+ * preferred size of 0.
+ *
+ * @see GridSolver
+ */
+public interface GridNodes
+{
+  /**
+   * @return the number of nodes in the grid
+   */
+  int getNodeCount();
+
+  /**
+   * @return the column the node starts in
+   */
+  int getCellX(int node);
+
+  /**
+   * @return the row the node starts in
+   */
+  int getCellY(int node);
+
+  /**
+   * @return the number of columns the node occupies. Always >= 1
+   */
+  int getSpanX(int node);
+
+  /**
+   * @return the number of rows the node occupies. Always >= 1
+   */
+  int getSpanY(int node);
+
+  /**
+   * @return the preferred width of the node
+   */
+  int getPreferredWidth(int node);
+
+  /**
+   * @return the preferred height of the node
+   */
+  int getPreferredHeight(int node);
+}
@@ -0,0 +1,163 @@
+package com.proficiosoftware.higlayout;
+
+/*
+ * GridSolution.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * The solved column widths and row heights of a grid for a given size. A
+ * solution can be computed ahead of time on any thread, e.g. while a list
+ * item is prepared in the background, and handed to
+ * HIGLayout.setPrecomputedSolution(). The layout then uses the solution
+ * instead of solving the grid itself.
+ *
+ * A solution is immutable and safe to share between threads.
+ *
+ * @see HIGLayout#setPrecomputedSolution(GridSolution)
+ */
+public final class GridSolution
+{
+  /** Size to pass to compute() to solve for the preferred size of the grid */
+  public static final int WRAP_CONTENT = -1;
+
+  private final GridSpec mSpec;
+  private final int mPreferredWidth;
+  private final int mPreferredHeight;
+  private final int mWidth;
+  private final int mHeight;
+  private final int[] mWidths;
+  private final int[] mHeights;
+
+  private GridSolution(GridSpec spec, int preferredWidth, int preferredHeight,
+      int width, int height, int[] widths, int[] heights)
+  {
+    mSpec = spec;
+    mPreferredWidth = preferredWidth;
+    mPreferredHeight = preferredHeight;
+    mWidth = width;
+    mHeight = height;
+    mWidths = widths;
+    mHeights = heights;
+  }
+
+  /**
+   * Solves the grid for the given nodes and stretches it to the given size.
+   * Does not depend on android and may be called from any thread as long as
+   * the nodes are not changed meanwhile.
+   *
+   * @param spec
+   *          the spec of the layout the solution is meant for
+   * @param nodes
+   *          the nodes with their preferred sizes
+   * @param width
+   *          the width of the grid without padding or WRAP_CONTENT
+   * @param height
+   *          the height of the grid without padding or WRAP_CONTENT
+   */
+  public static GridSolution compute(GridSpec spec, GridNodes nodes,
+      int width, int height)
+  {
+    return compute(new GridSolver(spec), spec, nodes, width, height);
+  }
+
+  /**
+   * Same as above but reuses the buffers of a solver, which need not be
+   * solving the same spec. Used by GridBatch to solve many grids per thread.
+   */
+  static GridSolution compute(GridSolver solver, GridSpec spec,
+      GridNodes nodes, int width, int height)
+  {
+    if (solver.getSpec() != spec)
+      solver.setSpec(spec);
+    else
+      solver.invalidateIndex();
+    int preferredWidth = solver.calcWidths(nodes);
+    int preferredHeight = solver.calcHeights(nodes);
+    if (width == WRAP_CONTENT)
+      width = preferredWidth;
+    if (height == WRAP_CONTENT)
+      height = preferredHeight;
+    solver.distributeWidth(width);
+    solver.distributeHeight(height);
+
+    int[] widths = new int[spec.colCount];
+    int[] heights = new int[spec.rowCount];
+    solver.copyComputedSizes(widths, heights);
+    return new GridSolution(spec, preferredWidth, preferredHeight, width,
+        height, widths, heights);
+  }
+
+  /**
+   * @return the spec the solution was computed for
+   */
+  public GridSpec getSpec()
+  {
+    return mSpec;
+  }
+
+  /**
+   * @return the width of the grid before it was stretched
+   */
+  public int getPreferredWidth()
+  {
+    return mPreferredWidth;
+  }
+
+  /**
+   * @return the height of the grid before it was stretched
+   */
+  public int getPreferredHeight()
+  {
+    return mPreferredHeight;
+  }
+
+  /**
+   * @return the width the grid was stretched to
+   */
+  public int getWidth()
+  {
+    return mWidth;
+  }
+
+  /**
+   * @return the height the grid was stretched to
+   */
+  public int getHeight()
+  {
+    return mHeight;
+  }
+
+  public int getColumnWidth(int col)
+  {
+    return mWidths[col];
+  }
+
+  public int getRowHeight(int row)
+  {
+    return mHeights[row];
+  }
+
+  /**
+   * Copies the solved column widths and row heights to the given arrays.
+   */
+  public void copySizes(int[] widths, int[] heights)
+  {
+    System.arraycopy(mWidths, 0, widths, 0, mWidths.length);
+    System.arraycopy(mHeights, 0, heights, 0, mHeights.length);
+  }
+}
@@ -0,0 +1,1246 @@
+package com.proficiosoftware.higlayout;
+
+import java.util.Arrays;
+
+/*
+ * GridSolver.java - HIGLayout layout manager
+ * Copyright (C) 1999 Daniel Michalik
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * Platform independent part of HIGLayout. Computes the column widths and row
+ * heights of a design grid from the preferred sizes of the nodes placed in
+ * it. This class does not depend on android and can be run on a plain JVM.
+ *
+ * Usage:
+ * 1. calcWidths()/calcHeights() to find the preferred size of the grid
+ * 2. distributeWidth()/distributeHeight() to stretch it to the final size
+ * 3. getColumnsX()/getRowsY() to get the absolute column/row positions
+ *
+ * @see HIGLayout
+ * @see GridNodes
+ */
+public class GridSolver
+{
+
+  // columns, rows and weights. Shared between solvers, never modified
+  private GridSpec mSpec;
+
+  // Holds the computed values after scaling to the correct with and height of
+  // the parent layout
+  private int[] mComputedWidths;
+  private int[] mComputedHeights;
+
+  // Holds the pixel positions of where the columns/row start. Buffers are
+  // reused, the flag tells whether the columns match the computed sizes.
+  // For rows only the first mRowsYValid positions match, so that appending
+  // rows only has to add the positions of the new rows
+  private int[] cacheColumnsX;
+  private int[] cacheRowsY;
+  private boolean mColumnsXValid = false;
+  private int mRowsYValid = 0;
+
+  // When all columns/rows have a fixed size their sizes don't depend on the
+  // nodes and only have to be distributed again when the desired size changes
+  private static final int UNSOLVED = Integer.MIN_VALUE;
+  private int mStaticWidth = UNSOLVED;
+  private int mStaticHeight = UNSOLVED;
+
+  // Nodes per column/row, rebuilt only when nodes are added, removed or moved
+  private final GridIndex mIndex = new GridIndex();
+  private boolean mIndexValid = false;
+
+  // Size of each column/row before references are resolved. Only the tracks
+  // marked dirty are recomputed by the next pass
+  private int[] mColSizes = new int[0];
+  private int[] mRowSizes = new int[0];
+  private boolean[] mColDirty = new boolean[0];
+  private boolean[] mRowDirty = new boolean[0];
+  private int[] mDirtyCols = new int[0];
+  private int[] mDirtyRows = new int[0];
+  private int mDirtyColCount = 0;
+  private int mDirtyRowCount = 0;
+  private boolean mAllColsDirty = true;
+  private boolean mAllRowsDirty = true;
+
+  // Preferred size of each column/row: the sizes above after widening the
+  // tracks for nodes spanning several of them, limits and references, and
+  // their total. When a pass only recomputes dirty tracks without spans or
+  // references just those tracks change and the total by their difference
+  private int[] mColPreferred = new int[0];
+  private int[] mRowPreferred = new int[0];
+  private int mPreferredWidth;
+  private int mPreferredHeight;
+
+  // The preferred sizes of a pass that recomputes all tracks, compared with
+  // the ones above to find the tracks that changed
+  private int[] mColNext = new int[0];
+  private int[] mRowNext = new int[0];
+
+  // What the computed sizes hold: the preferred sizes, the preferred sizes
+  // stretched to mStretchedWidth/Height, or sizes set from outside. Stretched
+  // sizes are kept by the next pass when no preferred size changed, and by
+  // distributeWidth()/distributeHeight() for the same size. Replaced sizes
+  // are always set back to the preferred sizes by the next pass
+  private static final int SIZES_PREFERRED = 0;
+  private static final int SIZES_STRETCHED = 1;
+  private static final int SIZES_REPLACED = 2;
+  private int mWidthsState = SIZES_REPLACED;
+  private int mHeightsState = SIZES_REPLACED;
+  private int mStretchedWidth;
+  private int mStretchedHeight;
+
+  // Column widths shared with other solvers, null when not shared
+  private ColumnGroup mColumnGroup;
+  private int mColumnGroupVersion;
+
+  // Stretches the columns/rows by weight, owns the buffers for it
+  private final SizeDistributor mDistributor = new SizeDistributor();
+
+  // Number of columns/rows computed from the nodes so far
+  private int mTracksComputed = 0;
+
+  /**
+   * Constructs a new solver for a grid with the given column widths and row
+   * heights. A positive value is a fixed size, 0 means the size is computed
+   * from the nodes and a negative value references another column/row.
+   * References are resolved here, a reference to a non existing column/row
+   * throws an IllegalArgumentException.
+   *
+   * @param colWidths
+   * @param rowHeights
+   * @param colWeights
+   *          may be null when no column stretches
+   * @param rowWeights
+   *          may be null when no row stretches
+   */
+  public GridSolver(int[] colWidths, int[] rowHeights, int[] colWeights,
+      int[] rowWeights)
+  {
+    this(new GridSpec(colWidths, rowHeights, colWeights, rowWeights));
+  }
+
+  /**
+   * Constructs a new solver for the given spec. The spec may be shared with
+   * other solvers.
+   */
+  public GridSolver(GridSpec spec)
+  {
+    setSpec(spec);
+  }
+
+  /**
+   * @return the spec currently solved
+   */
+  public GridSpec getSpec()
+  {
+    return mSpec;
+  }
+
+  /**
+   * Replaces the columns, rows and weights. All computed sizes are discarded,
+   * the buffers are only reallocated when the grid grows.
+   */
+  public void setSpec(GridSpec spec)
+  {
+    checkColumnGroup(mColumnGroup, spec.colCount);
+    mSpec = spec;
+    int colCount = spec.colCount;
+    int rowCount = spec.rowCount;
+
+    // grow geometrically so that a loop of setRowHeight() calls doesn't
+    // reallocate on every call
+    if (mComputedWidths == null || mComputedWidths.length < colCount)
+    {
+      int capacity = mComputedWidths == null ? colCount : Math.max(colCount,
+          mComputedWidths.length * 2);
+      mComputedWidths = new int[capacity];
+      cacheColumnsX = new int[capacity + 1];
+    }
+    if (mComputedHeights == null || mComputedHeights.length < rowCount)
+    {
+      int capacity = mComputedHeights == null ? rowCount : Math.max(rowCount,
+          mComputedHeights.length * 2);
+      mComputedHeights = new int[capacity];
+      cacheRowsY = new int[capacity + 1];
+    }
+    mColumnsXValid = false;
+    mRowsYValid = 0;
+    mWidthsState = SIZES_REPLACED;
+    mHeightsState = SIZES_REPLACED;
+    mStaticWidth = UNSOLVED;
+    mStaticHeight = UNSOLVED;
+    invalidateIndex();
+  }
+
+  /**
+   * Shares the column widths with other solvers. The columns of this solver
+   * get the widest width of each column over all solvers of the group, or
+   * the widths of the group once it is solved.
+   *
+   * @param group
+   *          the group to join or null to leave the group
+   * @throws IllegalArgumentException
+   *           when the group has a different number of columns
+   */
+  public void setColumnGroup(ColumnGroup group)
+  {
+    checkColumnGroup(group, mSpec.colCount);
+    mColumnGroup = group;
+    mColumnGroupVersion = group != null ? group.getVersion() - 1 : 0;
+  }
+
+  public ColumnGroup getColumnGroup()
+  {
+    return mColumnGroup;
+  }
+
+  /**
+   * @return true when the widths were last solved with the current widths of
+   *         the column group, or when there is no group
+   */
+  boolean isColumnGroupCurrent()
+  {
+    return mColumnGroup == null || mSpec.columnsStatic
+        || mColumnGroupVersion == mColumnGroup.getVersion();
+  }
+
+  private static void checkColumnGroup(ColumnGroup group, int colCount)
+  {
+    if (group != null && group.getColumnCount() != colCount)
+      throw new IllegalArgumentException("Column group has "
+          + group.getColumnCount() + " columns, grid has " + colCount);
+  }
+
+  public int getColumnCount()
+  {
+    return mSpec.colCount;
+  }
+
+  public int getRowCount()
+  {
+    return mSpec.rowCount;
+  }
+
+  public void setColumnWidthsHeights(int widths[], int heights[])
+  {
+    setSpec(new GridSpec(widths, heights, null, null));
+  }
+
+  /**
+   * @return true when all columns and rows have a fixed size. The size of
+   *         the grid then doesn't depend on the nodes, calcWidths() and
+   *         calcHeights() don't look at them.
+   */
+  public boolean isStatic()
+  {
+    return mSpec.isStatic();
+  }
+
+  /**
+   * Must be called when nodes are added or removed or when the cell or span
+   * of a node changes. The index of nodes per column/row is then rebuilt on
+   * the next pass.
+   */
+  public void invalidateIndex()
+  {
+    mIndexValid = false;
+    invalidateTracks();
+  }
+
+  /**
+   * Marks all columns and rows dirty so the next pass recomputes them from
+   * all nodes.
+   */
+  public void invalidateTracks()
+  {
+    mAllColsDirty = true;
+    mAllRowsDirty = true;
+  }
+
+  /**
+   * Must be called when the preferred size of a node changed. Only the
+   * column and row the node sizes are recomputed by the next pass.
+   */
+  public void invalidateNode(GridNodes nodes, int node)
+  {
+    if (nodes.getSpanX(node) == 1)
+      invalidateColumn(nodes.getCellX(node));
+    if (nodes.getSpanY(node) == 1)
+      invalidateRow(nodes.getCellY(node));
+  }
+
+  /**
+   * Marks a column dirty so the next pass recomputes its width.
+   */
+  public void invalidateColumn(int col)
+  {
+    if (mAllColsDirty || mColDirty[col])
+      return;
+    mColDirty[col] = true;
+    mDirtyCols[mDirtyColCount++] = col;
+  }
+
+  /**
+   * Marks a row dirty so the next pass recomputes its height.
+   */
+  public void invalidateRow(int row)
+  {
+    if (mAllRowsDirty || mRowDirty[row])
+      return;
+    mRowDirty[row] = true;
+    mDirtyRows[mDirtyRowCount++] = row;
+  }
+
+  /**
+   * Appends a row below the last one in amortized constant time. The rows
+   * above keep their computed heights and positions, only the new row is
+   * solved by the next pass. Nodes placed in the new row must be reported
+   * with nodesAppended().
+   *
+   * @return the index of the new row
+   */
+  public int appendRow(int height, int weight)
+  {
+    int row = mSpec.rowCount;
+    mSpec = mSpec.withAppendedRow(height, weight);
+
+    if (mComputedHeights.length <= row)
+    {
+      int capacity = Math.max(row + 1, mComputedHeights.length * 2);
+      mComputedHeights = Arrays.copyOf(mComputedHeights, capacity);
+      cacheRowsY = Arrays.copyOf(cacheRowsY, capacity + 1);
+    }
+    if (mRowSizes.length <= row)
+    {
+      int capacity = Math.max(row + 1, mRowSizes.length * 2);
+      mRowSizes = Arrays.copyOf(mRowSizes, capacity);
+      mRowPreferred = Arrays.copyOf(mRowPreferred, capacity);
+      mRowNext = Arrays.copyOf(mRowNext, capacity);
+      mRowDirty = Arrays.copyOf(mRowDirty, capacity);
+      mDirtyRows = Arrays.copyOf(mDirtyRows, capacity);
+    }
+    // the buffers may hold a row of a larger spec, the new row adds its
+    // height to the total from 0
+    mRowPreferred[row] = 0;
+    mComputedHeights[row] = 0;
+
+    // the index has no entry for the new row yet
+    mIndexValid = false;
+    invalidateRow(row);
+    mStaticHeight = UNSOLVED;
+    return row;
+  }
+
+  /**
+   * Must be called when nodes were added after the existing nodes, e.g. into
+   * appended rows. Unlike invalidateIndex() only the columns and rows of the
+   * new nodes are recomputed by the next pass.
+   *
+   * @param first
+   *          the index of the first new node
+   */
+  public void nodesAppended(GridNodes nodes, int first)
+  {
+    mIndexValid = false;
+    for (int j = nodes.getNodeCount() - 1; j >= first; j--)
+      invalidateNode(nodes, j);
+  }
+
+  /**
+   * Sets column width, the grid grows if col is beyond the last column. The
+   * spec is copied, it may be shared with other solvers. Each call copies
+   * the whole spec, use GridSpec.Builder to change many columns at once.
+   *
+   * @since 0.97
+   */
+  public void setColumnWidth(int col, int width)
+  {
+    setSpec(mSpec.withColumnWidth(col, width));
+  }
+
+  /**
+   * Sets row height, the grid grows if row is beyond the last row. The spec
+   * is copied, it may be shared with other solvers. Each call copies the
+   * whole spec, use GridSpec.Builder to change many rows at once or
+   * appendRow() to add rows one by one.
+   *
+   * @since 0.97
+   */
+  public void setRowHeight(int row, int height)
+  {
+    setSpec(mSpec.withRowHeight(row, height));
+  }
+
+  /**
+   * Sets weight of specified column. Weight determines distribution of
+   * difference when resizing.
+   *
+   * @param col
+   *          index of column. Index must be > 0.
+   */
+  public void setColumnWeight(int col, int weight)
+  {
+    if (col >= mSpec.colCount)
+    {
+      throw new RuntimeException("Column index cannot be greater then "
+          + mSpec.colCount + ".");
+    }
+    mSpec = mSpec.withColumnWeight(col, weight);
+    mStaticWidth = UNSOLVED;
+    // stretched widths have to be stretched again by the new weights
+    mStretchedWidth = UNSOLVED;
+  }
+
+  /**
+   * Sets weight of specified row. Weight determines distribution of difference
+   * when resizing.
+   *
+   * @param row
+   *          index of row. Index must be > 0.
+   */
+  public void setRowWeight(int row, int weight)
+  {
+    if (row >= mSpec.rowCount)
+    {
+      throw new RuntimeException("Column index cannot be greater then "
+          + mSpec.rowCount + ".");
+    }
+    mSpec = mSpec.withRowWeight(row, weight);
+    mStaticHeight = UNSOLVED;
+    // stretched heights have to be stretched again by the new weights
+    mStretchedHeight = UNSOLVED;
+  }
+
+  /**
+   * Sets the minimum and maximum width of a column, 0 for none. The spec is
+   * copied, it may be shared with other solvers.
+   */
+  public void setColumnLimits(int col, int minWidth, int maxWidth)
+  {
+    if (col >= mSpec.colCount)
+      throw new IllegalArgumentException("Column index cannot be greater then "
+          + mSpec.colCount + ".");
+    setSpec(mSpec.withColumnLimits(col, minWidth, maxWidth));
+  }
+
+  /**
+   * Sets the minimum and maximum height of a row, 0 for none. The spec is
+   * copied, it may be shared with other solvers.
+   */
+  public void setRowLimits(int row, int minHeight, int maxHeight)
+  {
+    if (row >= mSpec.rowCount)
+      throw new IllegalArgumentException("Row index cannot be greater then "
+          + mSpec.rowCount + ".");
+    setSpec(mSpec.withRowLimits(row, minHeight, maxHeight));
+  }
+
+  /**
+   * Returns the width of a range of columns when it does not depend on the
+   * nodes: all columns have a fixed width and no weight. The widths are
+   * clamped to the column limits like in calcWidths().
+   *
+   * @return the width or -1 when the width is not known before solving
+   */
+  public int getFixedColumnsWidth(int col, int span)
+  {
+    return getFixedLength(mSpec.colWidths, mSpec.colWeights, mSpec.colLimits,
+        col, span);
+  }
+
+  /**
+   * Returns the height of a range of rows when it does not depend on the
+   * nodes: all rows have a fixed height and no weight. The heights are
+   * clamped to the row limits like in calcHeights().
+   *
+   * @return the height or -1 when the height is not known before solving
+   */
+  public int getFixedRowsHeight(int row, int span)
+  {
+    return getFixedLength(mSpec.rowHeights, mSpec.rowWeights,
+        mSpec.rowLimits, row, span);
+  }
+
+  /**
+   * Returns the preferred width of a range of columns found by the last
+   * calcWidths(), or their fixed width when it does not depend on the
+   * nodes. Columns that were not solved yet count as 0.
+   */
+  public int getPreferredColumnsWidth(int col, int span)
+  {
+    int width = getFixedColumnsWidth(col, span);
+    if (width >= 0)
+      return width;
+    width = 0;
+    int end = Math.min(col + span, Math.min(mSpec.colCount,
+        mColPreferred.length));
+    for (int i = col; i < end; i++)
+      width += mColPreferred[i];
+    return width;
+  }
+
+  private static int getFixedLength(int[] g, int[] weights,
+      TrackLimits limits, int start, int span)
+  {
+    int length = 0;
+    for (int i = start + span - 1; i >= start; i--)
+    {
+      // references never change a fixed size, weights do
+      if (g[i] <= 0 || weights[i] != 0)
+        return -1;
+      length += limits.clamp(i, g[i]);
+    }
+    return length;
+  }
+
+  /**
+   * Copies the computed column widths and row heights to the given arrays.
+   */
+  public void copyComputedSizes(int[] widths, int[] heights)
+  {
+    System.arraycopy(mComputedWidths, 0, widths, 0, mSpec.colCount);
+    System.arraycopy(mComputedHeights, 0, heights, 0, mSpec.rowCount);
+  }
+
+  /**
+   * Copies the preferred column widths and row heights found by the last
+   * calcWidths()/calcHeights(), before they were stretched, to the given
+   * arrays. Columns/rows that all have a fixed size are not copied.
+   */
+  public void copyPreferredSizes(int[] widths, int[] heights)
+  {
+    if (!mSpec.columnsStatic)
+      System.arraycopy(mColPreferred, 0, widths, 0, mSpec.colCount);
+    if (!mSpec.rowsStatic)
+      System.arraycopy(mRowPreferred, 0, heights, 0, mSpec.rowCount);
+  }
+
+  /**
+   * Replaces the computed column widths and row heights by sizes solved
+   * earlier, e.g. copied with copyComputedSizes().
+   */
+  public void setComputedSizes(int[] widths, int[] heights)
+  {
+    setComputedWidths(widths);
+    setComputedHeights(heights);
+  }
+
+  /**
+   * Replaces the computed column widths, e.g. by the widths of the columns
+   * of an outer grid this grid is a subgrid of.
+   */
+  public void setComputedWidths(int[] widths)
+  {
+    System.arraycopy(widths, 0, mComputedWidths, 0, mSpec.colCount);
+    mColumnsXValid = false;
+    mWidthsState = SIZES_REPLACED;
+    mStaticWidth = UNSOLVED;
+  }
+
+  /**
+   * Replaces the computed row heights, e.g. by the heights of the rows of an
+   * outer grid this grid is a subgrid of.
+   */
+  public void setComputedHeights(int[] heights)
+  {
+    System.arraycopy(heights, 0, mComputedHeights, 0, mSpec.rowCount);
+    mRowsYValid = 0;
+    mHeightsState = SIZES_REPLACED;
+    mStaticHeight = UNSOLVED;
+  }
+
+  /**
+   * Sets the computed column widths and row heights to an interpolation
+   * between two solved states, e.g. copied with copyComputedSizes(). Used to
+   * animate the columns/rows without solving. Does not allocate.
+   *
+   * @param fraction
+   *          0 gives the from sizes, 1 the to sizes
+   */
+  public void interpolateComputedSizes(int[] fromWidths, int[] fromHeights,
+      int[] toWidths, int[] toHeights, float fraction)
+  {
+    for (int i = 0; i < mSpec.colCount; i++)
+      mComputedWidths[i] = fromWidths[i]
+          + Math.round((toWidths[i] - fromWidths[i]) * fraction);
+    for (int i = 0; i < mSpec.rowCount; i++)
+      mComputedHeights[i] = fromHeights[i]
+          + Math.round((toHeights[i] - fromHeights[i]) * fraction);
+    mColumnsXValid = false;
+    mRowsYValid = 0;
+    mWidthsState = SIZES_REPLACED;
+    mHeightsState = SIZES_REPLACED;
+    mStaticWidth = UNSOLVED;
+    mStaticHeight = UNSOLVED;
+  }
+
+  /**
+   * Replaces the computed column widths and row heights by a solution
+   * computed ahead of time, so calcWidths()/calcHeights() and
+   * distributeWidth()/distributeHeight() don't have to run.
+   *
+   * @throws IllegalArgumentException
+   *           when the solution was computed for another spec
+   */
+  public void applySolution(GridSolution solution)
+  {
+    if (solution.getSpec() != mSpec)
+      throw new IllegalArgumentException(
+          "Solution was computed for a different spec");
+    solution.copySizes(mComputedWidths, mComputedHeights);
+    mColumnsXValid = false;
+    mRowsYValid = 0;
+    mWidthsState = SIZES_REPLACED;
+    mHeightsState = SIZES_REPLACED;
+    mStaticWidth = mSpec.columnsStatic ? solution.getWidth() : UNSOLVED;
+    mStaticHeight = mSpec.rowsStatic ? solution.getHeight() : UNSOLVED;
+  }
+
+  /**
+   * Calculate the absolute positions of each column by adding column widths.
+   * The returned array is owned by the solver and is overwritten by the next
+   * pass.
+   *
+   * @param left
+   *          position of the first column (usually the left padding)
+   * @return
+   */
+  public int[] getColumnsX(int left)
+  {
+    int x[] = cacheColumnsX;
+    if (mColumnsXValid && x[0] == left)
+      return x;
+
+    x[0] = left; // add 1 left for padding left
+    for (int i = 1; i <= mSpec.colCount; i++)
+      x[i] = x[i - 1] + mComputedWidths[i - 1];
+
+    mColumnsXValid = true;
+    return x;
+  }
+
+  /**
+   * Calculate the absolute positions of each row by adding row heights. The
+   * returned array is owned by the solver and is overwritten by the next
+   * pass.
+   *
+   * @param top
+   *          position of the first row (usually the top padding)
+   * @return
+   */
+  public int[] getRowsY(int top)
+  {
+    int y[] = cacheRowsY;
+    int count = mSpec.rowCount;
+    int valid = mRowsYValid;
+    if (valid == 0 || y[0] != top)
+    {
+      y[0] = top;
+      valid = 1;
+    }
+    else if (valid > count)
+      return y;
+
+    for (int i = valid; i <= count; i++)
+      y[i] = y[i - 1] + mComputedHeights[i - 1];
+
+    mRowsYValid = count + 1;
+    return y;
+  }
+
+  /**
+   * Takes a snapshot of the current column/row positions and the cells of the
+   * nodes. Allocates, meant to be called only when the geometry is asked for.
+   *
+   * @param left
+   *          position of the first column (usually the left padding)
+   * @param top
+   *          position of the first row (usually the top padding)
+   * @param version
+   *          identifies the pass the positions were solved in
+   */
+  public GridGeometry createGeometry(GridNodes nodes, int left, int top,
+      int version)
+  {
+    int colCount = mSpec.colCount;
+    int rowCount = mSpec.rowCount;
+    int[] x = Arrays.copyOf(getColumnsX(left), colCount + 1);
+    int[] y = Arrays.copyOf(getRowsY(top), rowCount + 1);
+
+    int nodeCount = nodes.getNodeCount();
+    int[] cellX = new int[nodeCount];
+    int[] cellY = new int[nodeCount];
+    int[] spanX = new int[nodeCount];
+    int[] spanY = new int[nodeCount];
+    for (int j = 0; j < nodeCount; j++)
+    {
+      cellX[j] = nodes.getCellX(j);
+      cellY[j] = nodes.getCellY(j);
+      spanX[j] = nodes.getSpanX(j);
+      spanY[j] = nodes.getSpanY(j);
+    }
+
+    return new GridGeometry(version, colCount, rowCount, x, y, cellX, cellY,
+        spanX, spanY);
+  }
+
+  /**
+   * Calculate the widths of each column by finding the maximum width of all
+   * nodes in that column. Afterwards the columns are widened for the nodes
+   * spanning several columns, narrowest span first. Subgrids (see
+   * SubgridNodes) widen each column they span to what their own column
+   * needs. Only the columns marked dirty since the previous pass are
+   * recomputed from their nodes. Without spanning nodes, references and a
+   * column group the pass takes time proportional to the dirty columns,
+   * unless the widths were stretched and a preferred width changed: then all
+   * widths are set back to be stretched again. When all columns have a
+   * fixed width the nodes are not looked at and the widths are only set by
+   * distributeWidth(). When the solver is part of a column group the widths
+   * are those of the group. Once the group is solved (see ColumnGroup) the
+   * columns are not computed at all.
+   *
+   * @return the total width of the grid
+   */
+  public int calcWidths(GridNodes nodes)
+  {
+    if (mSpec.columnsStatic)
+      return mSpec.fixedWidthSum;
+
+    int count = mSpec.colCount;
+    if (!mIndexValid)
+      buildIndex(nodes);
+    if (mColSizes.length < count)
+    {
+      int capacity = Math.max(count, mColSizes.length * 2);
+      mColSizes = new int[capacity];
+      mColPreferred = new int[capacity];
+      mColNext = new int[capacity];
+      mColDirty = new boolean[capacity];
+      mDirtyCols = new int[capacity];
+      mAllColsDirty = true;
+    }
+
+    ColumnGroup group = mColumnGroup;
+    boolean groupSolved = group != null && group.isSolved();
+    int[] sizes = mColSizes;
+    boolean all = mAllColsDirty;
+    if (groupSolved)
+    {
+      // the group solved the widths, the columns are not looked at. They
+      // are all computed again once the group is reset
+      mAllColsDirty = true;
+      all = true;
+    }
+    else if (all)
+    {
+      for (int i = 0; i < count; i++)
+      {
+        sizes[i] = calcColumnWidth(nodes, i);
+        mColDirty[i] = false;
+      }
+      mAllColsDirty = false;
+    }
+    else
+    {
+      for (int k = 0; k < mDirtyColCount; k++)
+      {
+        int i = mDirtyCols[k];
+        sizes[i] = calcColumnWidth(nodes, i);
+        mColDirty[i] = false;
+      }
+    }
+
+    // find the columns whose preferred width changed
+    int[] preferred = mColPreferred;
+    int[] widths = mComputedWidths;
+    boolean changed = false;
+    if (all || mIndex.colSpanCount > 0 || !mSpec.colGroups.isEmpty()
+        || group != null)
+    {
+      int[] next = mColNext;
+      if (groupSolved)
+      {
+        group.copyWidths(next);
+        mColumnGroupVersion = group.getVersion();
+      }
+      else
+      {
+        System.arraycopy(sizes, 0, next, 0, count);
+        if (mIndex.colSpanCount > 0)
+        {
+          SubgridNodes subgrids = nodes instanceof SubgridNodes
+              ? (SubgridNodes)nodes : null;
+          for (int k = 0; k < mIndex.colSpanCount; k++)
+          {
+            int node = mIndex.colSpanNodes[k];
+            int[] tracks = subgrids != null
+                ? subgrids.getSubgridWidths(node) : null;
+            if (tracks != null)
+              fitSubgrid(next, mSpec.colWidths, count, nodes.getCellX(node),
+                  tracks);
+            else
+              fitSpan(next, mSpec.colWidths, mSpec.colWeights, count,
+                  nodes.getCellX(node), nodes.getSpanX(node),
+                  nodes.getPreferredWidth(node));
+          }
+        }
+
+        if (!mSpec.colLimits.isEmpty())
+          mSpec.colLimits.clamp(next, count);
+
+        if (group != null)
+        {
+          // the members solved earlier are told when the group is solved
+          group.merge(next);
+          group.copyWidths(next);
+          mColumnGroupVersion = group.getVersion();
+        }
+      }
+      mSpec.colGroups.apply(next);
+
+      int totalWidth = 0;
+      for (int i = 0; i < count; i++)
+      {
+        totalWidth += next[i];
+        if (preferred[i] != next[i])
+        {
+          preferred[i] = next[i];
+          widths[i] = next[i];
+          changed = true;
+        }
+      }
+      mPreferredWidth = totalWidth;
+    }
+    else
+    {
+      // only the dirty columns can have changed
+      TrackLimits limits = mSpec.colLimits;
+      for (int k = 0; k < mDirtyColCount; k++)
+      {
+        int i = mDirtyCols[k];
+        int width = limits.clamp(i, sizes[i]);
+        if (preferred[i] != width)
+        {
+          mPreferredWidth += width - preferred[i];
+          preferred[i] = width;
+          widths[i] = width;
+          changed = true;
+        }
+      }
+    }
+    mDirtyColCount = 0;
+
+    // Stretched widths stay valid as long as no preferred width changed.
+    // Otherwise, and when they were replaced, all widths are set back
+    if (mWidthsState == SIZES_REPLACED
+        || (changed && mWidthsState == SIZES_STRETCHED))
+    {
+      System.arraycopy(preferred, 0, widths, 0, count);
+      mWidthsState = SIZES_PREFERRED;
+      changed = true;
+    }
+    if (changed)
+      mColumnsXValid = false;
+
+    return mPreferredWidth;
+  }
+
+  private int calcColumnWidth(GridNodes nodes, int col)
+  {
+    mTracksComputed++;
+    if (mSpec.colWidths[col] > 0) // use specified fixed width
+      return mSpec.colWidths[col];
+
+    int[] start = mIndex.colStart;
+    int[] colNodes = mIndex.colNodes;
+    int maxWidth = 0;
+    for (int j = start[col + 1] - 1; j >= start[col]; j--)
+    {
+      int width = nodes.getPreferredWidth(colNodes[j]);
+      maxWidth = (width > maxWidth) ? width : maxWidth;
+    }
+    return maxWidth;
+  }
+
+  /**
+   * Calculate the heights of each row by finding the maximum height of all
+   * nodes in that row. Afterwards the rows are heightened for the nodes
+   * spanning several rows, shortest span first. Only the rows marked dirty
+   * since the previous pass are recomputed from their nodes. Without
+   * spanning nodes and references the pass takes time proportional to the
+   * dirty rows, unless the heights were stretched and a preferred height
+   * changed: then all heights are set back to be stretched again. When all
+   * rows have a fixed height the nodes are not looked at and the heights are
+   * only set by distributeHeight().
+   *
+   * @return the total height of the grid
+   */
+  public int calcHeights(GridNodes nodes)
+  {
+    if (mSpec.rowsStatic)
+      return mSpec.fixedHeightSum;
+
+    int count = mSpec.rowCount;
+    if (!mIndexValid)
+      buildIndex(nodes);
+    if (mRowSizes.length < count)
+    {
+      int capacity = Math.max(count, mRowSizes.length * 2);
+      mRowSizes = new int[capacity];
+      mRowPreferred = new int[capacity];
+      mRowNext = new int[capacity];
+      mRowDirty = new boolean[capacity];
+      mDirtyRows = new int[capacity];
+      mAllRowsDirty = true;
+    }
+
+    int[] sizes = mRowSizes;
+    boolean all = mAllRowsDirty;
+    if (all)
+    {
+      for (int i = 0; i < count; i++)
+      {
+        sizes[i] = calcRowHeight(nodes, i);
+        mRowDirty[i] = false;
+      }
+      mAllRowsDirty = false;
+    }
+    else
+    {
+      for (int k = 0; k < mDirtyRowCount; k++)
+      {
+        int i = mDirtyRows[k];
+        sizes[i] = calcRowHeight(nodes, i);
+        mRowDirty[i] = false;
+      }
+    }
+
+    // find the rows whose preferred height changed, the row positions stay
+    // valid down to the first of them
+    int[] preferred = mRowPreferred;
+    int[] heights = mComputedHeights;
+    int valid = mRowsYValid;
+    boolean changed = false;
+    if (all || mIndex.rowSpanCount > 0 || !mSpec.rowGroups.isEmpty())
+    {
+      int[] next = mRowNext;
+      System.arraycopy(sizes, 0, next, 0, count);
+      if (mIndex.rowSpanCount > 0)
+      {
+        SubgridNodes subgrids = nodes instanceof SubgridNodes
+            ? (SubgridNodes)nodes : null;
+        for (int k = 0; k < mIndex.rowSpanCount; k++)
+        {
+          int node = mIndex.rowSpanNodes[k];
+          int[] tracks = subgrids != null ? subgrids.getSubgridHeights(node)
+              : null;
+          if (tracks != null)
+            fitSubgrid(next, mSpec.rowHeights, count, nodes.getCellY(node),
+                tracks);
+          else
+            fitSpan(next, mSpec.rowHeights, mSpec.rowWeights, count,
+                nodes.getCellY(node), nodes.getSpanY(node),
+                nodes.getPreferredHeight(node));
+        }
+      }
+
+      if (!mSpec.rowLimits.isEmpty())
+        mSpec.rowLimits.clamp(next, count);
+      mSpec.rowGroups.apply(next);
+
+      int totalHeight = 0;
+      for (int i = 0; i < count; i++)
+      {
+        totalHeight += next[i];
+        if (preferred[i] != next[i])
+        {
+          preferred[i] = next[i];
+          heights[i] = next[i];
+          changed = true;
+          if (valid > i + 1)
+            valid = i + 1;
+        }
+      }
+      mPreferredHeight = totalHeight;
+    }
+    else
+    {
+      // only the dirty rows can have changed
+      TrackLimits limits = mSpec.rowLimits;
+      for (int k = 0; k < mDirtyRowCount; k++)
+      {
+        int i = mDirtyRows[k];
+        int height = limits.clamp(i, sizes[i]);
+        if (preferred[i] != height)
+        {
+          mPreferredHeight += height - preferred[i];
+          preferred[i] = height;
+          heights[i] = height;
+          changed = true;
+          if (valid > i + 1)
+            valid = i + 1;
+        }
+      }
+    }
+    mDirtyRowCount = 0;
+
+    // Stretched heights stay valid as long as no preferred height changed.
+    // Otherwise, and when they were replaced, all heights are set back
+    if (mHeightsState == SIZES_REPLACED
+        || (changed && mHeightsState == SIZES_STRETCHED))
+    {
+      System.arraycopy(preferred, 0, heights, 0, count);
+      mHeightsState = SIZES_PREFERRED;
+      valid = 0;
+    }
+    mRowsYValid = valid;
+
+    return mPreferredHeight;
+  }
+
+  private int calcRowHeight(GridNodes nodes, int row)
+  {
+    mTracksComputed++;
+    if (mSpec.rowHeights[row] > 0)// use specified fixed height
+      return mSpec.rowHeights[row];
+
+    int[] start = mIndex.rowStart;
+    int[] rowNodes = mIndex.rowNodes;
+    int maxHeight = 0;
+    for (int j = start[row + 1] - 1; j >= start[row]; j--)
+    {
+      int height = nodes.getPreferredHeight(rowNodes[j]);
+      maxHeight = (height > maxHeight) ? height : maxHeight;
+    }
+    return maxHeight;
+  }
+
+  /**
+   * Widens the columns/rows spanned by a node until the node fits. The
+   * missing space goes to the spanned tracks sized by the nodes (not those
+   * with a fixed size) by their weights, or evenly when none of them has a
+   * weight. Pixels left over by rounding go to the first of those tracks.
+   *
+   * @param sizes
+   *          the current sizes, widened in place
+   * @param specSizes
+   *          the sizes from the spec, positive for a fixed size
+   */
+  private static void fitSpan(int[] sizes, int[] specSizes, int[] weights,
+      int count, int start, int span, int length)
+  {
+    int end = Math.min(start + span, count);
+    int missing = length;
+    int autoCount = 0;
+    int weightSum = 0;
+    for (int i = start; i < end; i++)
+    {
+      missing -= sizes[i];
+      if (specSizes[i] <= 0)
+      {
+        autoCount++;
+        weightSum += weights[i];
+      }
+    }
+    if (missing <= 0 || autoCount == 0)
+      return;
+
+    int parts = weightSum > 0 ? weightSum : autoCount;
+    int left = missing;
+    for (int i = start; i < end; i++)
+    {
+      if (specSizes[i] > 0)
+        continue;
+      int part = weightSum > 0 ? weights[i] : 1;
+      int extra = (int)((long)missing * part / parts);
+      sizes[i] += extra;
+      left -= extra;
+    }
+    for (int i = start; i < end && left > 0; i++)
+    {
+      if (specSizes[i] <= 0 && (weightSum == 0 || weights[i] > 0))
+      {
+        sizes[i]++;
+        left--;
+      }
+    }
+  }
+
+  /**
+   * Widens the columns/rows spanned by a subgrid to the sizes its own
+   * columns/rows need. Tracks with a fixed size keep their size.
+   *
+   * @param tracks
+   *          the size needed in each spanned column/row
+   */
+  private static void fitSubgrid(int[] sizes, int[] specSizes, int count,
+      int start, int[] tracks)
+  {
+    int end = Math.min(start + tracks.length, count);
+    for (int i = start; i < end; i++)
+    {
+      int size = tracks[i - start];
+      if (specSizes[i] <= 0 && size > sizes[i])
+        sizes[i] = size;
+    }
+  }
+
+  /**
+   * @return the number of columns/rows computed from the nodes by
+   *         calcWidths()/calcHeights() since the solver was created
+   */
+  public int getTracksComputed()
+  {
+    return mTracksComputed;
+  }
+
+  /**
+   * @return the index of nodes per column/row, rebuilt first when nodes were
+   *         added, removed or moved
+   */
+  GridIndex getIndex(GridNodes nodes)
+  {
+    if (!mIndexValid)
+      buildIndex(nodes);
+    return mIndex;
+  }
+
+  /**
+   * Finds the column/row containing a position by binary search over the
+   * edges returned by getColumnsX()/getRowsY().
+   *
+   * @param count
+   *          the number of columns/rows
+   * @return the last column/row starting at or before pos. Positions before
+   *         the first or after the last column/row give the first or last one.
+   */
+  static int findTrack(int[] edges, int count, int pos)
+  {
+    int low = 0;
+    int high = count - 1;
+    while (low < high)
+    {
+      int mid = (low + high + 1) >>> 1;
+      if (edges[mid] <= pos)
+        low = mid;
+      else
+        high = mid - 1;
+    }
+    return low;
+  }
+
+  private void buildIndex(GridNodes nodes)
+  {
+    mIndex.build(nodes, mSpec.colCount, mSpec.rowCount);
+    mIndexValid = true;
+  }
+
+  /**
+   * Stretches the computed column widths to the desired width using the
+   * column weights. Columns stay within their minimum and maximum width, see
+   * SizeDistributor. Widths stretched to the same width before are kept when
+   * no preferred width changed since, the columns are not looked at then.
+   */
+  public void distributeWidth(int desiredWidth)
+  {
+    if (mSpec.columnsStatic)
+    {
+      // the widths and column positions are still valid for this width
+      if (desiredWidth == mStaticWidth)
+        return;
+      System.arraycopy(mSpec.colWidths, 0, mComputedWidths, 0, mSpec.colCount);
+      mStaticWidth = desiredWidth;
+      mColumnsXValid = false;
+      mWidthsState = SIZES_REPLACED;
+    }
+    else if (mWidthsState == SIZES_PREFERRED)
+    {
+      // nothing to stretch, don't look at the columns
+      if (desiredWidth == mPreferredWidth)
+        return;
+    }
+    else if (mWidthsState == SIZES_STRETCHED)
+    {
+      if (desiredWidth == mStretchedWidth)
+        return;
+      // stretch the preferred widths, not the ones stretched to another width
+      System.arraycopy(mColPreferred, 0, mComputedWidths, 0, mSpec.colCount);
+      mColumnsXValid = false;
+      mWidthsState = SIZES_PREFERRED;
+    }
+    if (mDistributor.distribute(desiredWidth, mComputedWidths,
+        mSpec.colWeights, mSpec.colCount, mSpec.colLimits))
+    {
+      mColumnsXValid = false;
+      if (mWidthsState == SIZES_PREFERRED)
+      {
+        mWidthsState = SIZES_STRETCHED;
+        mStretchedWidth = desiredWidth;
+      }
+    }
+  }
+
+  /**
+   * Stretches the computed row heights to the desired height using the row
+   * weights. Rows stay within their minimum and maximum height. Heights
+   * stretched to the same height before are kept when no preferred height
+   * changed since, the rows are not looked at then.
+   */
+  public void distributeHeight(int desiredHeight)
+  {
+    if (mSpec.rowsStatic)
+    {
+      // the heights and row positions are still valid for this height
+      if (desiredHeight == mStaticHeight)
+        return;
+      System.arraycopy(mSpec.rowHeights, 0, mComputedHeights, 0,
+          mSpec.rowCount);
+      mStaticHeight = desiredHeight;
+      mRowsYValid = 0;
+      mHeightsState = SIZES_REPLACED;
+    }
+    else if (mHeightsState == SIZES_PREFERRED)
+    {
+      // nothing to stretch, don't look at the rows
+      if (desiredHeight == mPreferredHeight)
+        return;
+    }
+    else if (mHeightsState == SIZES_STRETCHED)
+    {
+      if (desiredHeight == mStretchedHeight)
+        return;
+      // stretch the preferred heights, not the ones stretched to another
+      // height
+      System.arraycopy(mRowPreferred, 0, mComputedHeights, 0, mSpec.rowCount);
+      mRowsYValid = 0;
+      mHeightsState = SIZES_PREFERRED;
+    }
+    if (mDistributor.distribute(desiredHeight, mComputedHeights,
+        mSpec.rowWeights, mSpec.rowCount, mSpec.rowLimits))
+    {
+      mRowsYValid = 0;
+      if (mHeightsState == SIZES_PREFERRED)
+      {
+        mHeightsState = SIZES_STRETCHED;
+        mStretchedHeight = desiredHeight;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,798 @@
+package com.proficiosoftware.higlayout;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * GridSpec.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * Immutable description of the columns and rows of a grid: their sizes,
+ * weights, minimum/maximum sizes and the references between them.
+ * Everything that can be derived from the sizes and weights alone (weight
+ * sums, reference groups, whether the grid is static) is computed once when
+ * the spec is created.
+ *
+ * Specs parsed from XML attributes are interned by obtain(), so all layouts
+ * inflated with the same attribute strings share a single instance. A spec
+ * never changes, it is safe to share between threads.
+ *
+ * To append rows in constant time a spec created by withAppendedRow() may
+ * share its row arrays with the spec it was appended to. The appended rows
+ * are written beyond the rows of the older spec, which never reads them: all
+ * row accessors check the row against getRowCount().
+ *
+ * @see GridSolver
+ */
+public final class GridSpec
+{
+  // maximum number of interned specs
+  private static final int CACHE_SIZE = 64;
+
+  private static final Map<String, GridSpec> sCache =
+      new LinkedHashMap<String, GridSpec>(16, 0.75f, true)
+  {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, GridSpec> eldest)
+    {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  // The columns and rows of the spec are never modified after construction.
+  // The row arrays may be longer than rowCount, their tail is then written
+  // by the spec appended to this one and must not be read
+  final int colCount;
+  final int rowCount;
+  final int[] colWidths;
+  final int[] rowHeights;
+  final int[] colWeights;
+  final int[] rowWeights;
+  final int colWeightsSum;
+  final int rowWeightsSum;
+
+  // References between columns/rows compiled into groups of equal size
+  final TrackGroups colGroups;
+  final TrackGroups rowGroups;
+
+  // Minimum and maximum sizes of the columns/rows
+  final TrackLimits colLimits;
+  final TrackLimits rowLimits;
+
+  // Set when all columns/rows have a fixed size and no limits
+  final boolean columnsStatic;
+  final boolean rowsStatic;
+  final int fixedWidthSum;
+  final int fixedHeightSum;
+
+  // Number of rows in use by the spec with the most rows sharing the row
+  // arrays. Appending to a spec that has that many rows claims the next row
+  // of the arrays instead of copying them. Only the row claimed is written.
+  private final AtomicInteger rowsUsed;
+
+  /**
+   * Creates a spec from the given column widths and row heights. A positive
+   * value is a fixed size, 0 means the size is computed from the nodes and a
+   * negative value references another column/row. The arrays are copied.
+   *
+   * @param colWidths
+   * @param rowHeights
+   * @param colWeights
+   *          may be null when no column stretches
+   * @param rowWeights
+   *          may be null when no row stretches
+   * @throws IllegalArgumentException
+   *           when the number of weights doesn't match or a column/row
+   *           references a non existing column/row
+   */
+  public GridSpec(int[] colWidths, int[] rowHeights, int[] colWeights,
+      int[] rowWeights)
+  {
+    this(colWidths.clone(), rowHeights.clone(),
+        colWeights != null ? colWeights.clone() : new int[colWidths.length],
+        rowWeights != null ? rowWeights.clone() : new int[rowHeights.length],
+        rowHeights.length, null, TrackLimits.NONE, TrackLimits.NONE);
+  }
+
+  /**
+   * Creates a spec with minimum and maximum sizes for the columns and rows.
+   * A limit of 0 means the column/row has no minimum/maximum. The arrays are
+   * copied.
+   *
+   * @param colMinWidths
+   *          may be null when no column has a minimum width
+   * @param colMaxWidths
+   *          may be null when no column has a maximum width
+   * @param rowMinHeights
+   *          may be null when no row has a minimum height
+   * @param rowMaxHeights
+   *          may be null when no row has a maximum height
+   * @throws IllegalArgumentException
+   *           when the number of weights or limits doesn't match, a limit is
+   *           negative, a minimum exceeds its maximum or a column/row
+   *           references a non existing column/row
+   */
+  public GridSpec(int[] colWidths, int[] rowHeights, int[] colWeights,
+      int[] rowWeights, int[] colMinWidths, int[] colMaxWidths,
+      int[] rowMinHeights, int[] rowMaxHeights)
+  {
+    this(colWidths.clone(), rowHeights.clone(),
+        colWeights != null ? colWeights.clone() : new int[colWidths.length],
+        rowWeights != null ? rowWeights.clone() : new int[rowHeights.length],
+        rowHeights.length, null, limits(colMinWidths, colMaxWidths,
+            colWidths.length, "Column"), limits(rowMinHeights, rowMaxHeights,
+            rowHeights.length, "Row"));
+  }
+
+  /**
+   * Takes ownership of the arrays. Only the first rowCount rows are used.
+   *
+   * @param rowsUsed
+   *          the rows used of the row arrays when they are shared with
+   *          another spec, null when not shared
+   */
+  private GridSpec(int[] colWidths, int[] rowHeights, int[] colWeights,
+      int[] rowWeights, int rowCount, AtomicInteger rowsUsed,
+      TrackLimits colLimits, TrackLimits rowLimits)
+  {
+    this.colWidths = colWidths;
+    this.rowHeights = rowHeights;
+    this.colWeights = colWeights;
+    this.rowWeights = rowWeights;
+    this.colLimits = colLimits;
+    this.rowLimits = rowLimits;
+    this.colCount = colWidths.length;
+    this.rowCount = rowCount;
+    this.rowsUsed = rowsUsed != null ? rowsUsed : new AtomicInteger(rowCount);
+
+    if (rowWeights.length != rowHeights.length)
+      throw new IllegalArgumentException(
+          "RowWeights list must match number of rows");
+    if (colWeights.length != colCount)
+      throw new IllegalArgumentException(
+          "ColumnWeights list must match number of columns");
+
+    colWeightsSum = sum(colWeights, colCount);
+    rowWeightsSum = sum(rowWeights, rowCount);
+
+    colGroups = TrackGroups.compile(colWidths, colCount);
+    rowGroups = TrackGroups.compile(rowHeights, rowCount);
+
+    columnsStatic = isStatic(colWidths, colCount) && colLimits.isEmpty();
+    rowsStatic = isStatic(rowHeights, rowCount) && rowLimits.isEmpty();
+    fixedWidthSum = columnsStatic ? sum(colWidths, colCount) : 0;
+    fixedHeightSum = rowsStatic ? sum(rowHeights, rowCount) : 0;
+  }
+
+  /**
+   * Creates a spec with one row appended to the rows of the given spec. Only
+   * the appended row is looked at, the rest is taken from the spec.
+   */
+  private GridSpec(GridSpec spec, int[] rowHeights, int[] rowWeights,
+      AtomicInteger rowsUsed, int height, int weight)
+  {
+    colWidths = spec.colWidths;
+    colWeights = spec.colWeights;
+    colCount = spec.colCount;
+    colWeightsSum = spec.colWeightsSum;
+    colGroups = spec.colGroups;
+    colLimits = spec.colLimits;
+    rowLimits = spec.rowLimits;
+    columnsStatic = spec.columnsStatic;
+    fixedWidthSum = spec.fixedWidthSum;
+
+    this.rowHeights = rowHeights;
+    this.rowWeights = rowWeights;
+    this.rowsUsed = rowsUsed;
+    rowCount = spec.rowCount + 1;
+    rowWeightsSum = spec.rowWeightsSum + weight;
+    // earlier rows can't reference the new row, only a reference from the
+    // new row changes the groups
+    rowGroups = height < 0 ? TrackGroups.compile(rowHeights, rowCount)
+        : spec.rowGroups;
+    rowsStatic = spec.rowsStatic && height > 0;
+    fixedHeightSum = rowsStatic ? spec.fixedHeightSum + height : 0;
+  }
+
+  /**
+   * Returns the spec for the given attribute strings, parsing them only the
+   * first time they are seen.
+   *
+   * @param colWidths
+   *          comma separated column widths
+   * @param rowHeights
+   *          comma separated row heights
+   * @param colWeights
+   *          comma separated column weights, may be null
+   * @param rowWeights
+   *          comma separated row weights, may be null
+   * @throws IllegalArgumentException
+   *           when a list contains an illegal value or the spec is
+   *           inconsistent
+   */
+  public static GridSpec obtain(String colWidths, String rowHeights,
+      String colWeights, String rowWeights)
+  {
+    return obtain(colWidths, rowHeights, colWeights, rowWeights, null, null,
+        null, null);
+  }
+
+  /**
+   * Returns the spec for the given attribute strings including the minimum
+   * and maximum sizes, parsing them only the first time they are seen.
+   *
+   * @param colMinWidths
+   *          comma separated minimum column widths, may be null
+   * @param colMaxWidths
+   *          comma separated maximum column widths, may be null
+   * @param rowMinHeights
+   *          comma separated minimum row heights, may be null
+   * @param rowMaxHeights
+   *          comma separated maximum row heights, may be null
+   * @throws IllegalArgumentException
+   *           when a list contains an illegal value or the spec is
+   *           inconsistent
+   */
+  public static GridSpec obtain(String colWidths, String rowHeights,
+      String colWeights, String rowWeights, String colMinWidths,
+      String colMaxWidths, String rowMinHeights, String rowMaxHeights)
+  {
+    String key = colWidths + ';' + rowHeights + ';' + colWeights + ';'
+        + rowWeights + ';' + colMinWidths + ';' + colMaxWidths + ';'
+        + rowMinHeights + ';' + rowMaxHeights;
+    synchronized (sCache)
+    {
+      GridSpec spec = sCache.get(key);
+      if (spec != null)
+        return spec;
+    }
+
+    int[] cw = parse(colWidths, "column_widths");
+    int[] rh = parse(rowHeights, "row_heights");
+    int[] cwt = colWeights != null ? parse(colWeights, "column_weights")
+        : new int[cw.length];
+    int[] rwt = rowWeights != null ? parse(rowWeights, "row_weights")
+        : new int[rh.length];
+    TrackLimits colLimits = limits(
+        colMinWidths != null ? parse(colMinWidths, "column_min_widths") : null,
+        colMaxWidths != null ? parse(colMaxWidths, "column_max_widths") : null,
+        cw.length, "Column");
+    TrackLimits rowLimits = limits(
+        rowMinHeights != null ? parse(rowMinHeights, "row_min_heights") : null,
+        rowMaxHeights != null ? parse(rowMaxHeights, "row_max_heights") : null,
+        rh.length, "Row");
+    GridSpec spec = new GridSpec(cw, rh, cwt, rwt, rh.length, null,
+        colLimits, rowLimits);
+
+    synchronized (sCache)
+    {
+      sCache.put(key, spec);
+    }
+    return spec;
+  }
+
+  /**
+   * @param what
+   *          "Column" or "Row", used in the error message
+   * @throws IllegalArgumentException
+   *           when a list of limits doesn't match the number of tracks
+   */
+  private static TrackLimits limits(int[] min, int[] max, int count,
+      String what)
+  {
+    if ((min != null && min.length != count)
+        || (max != null && max.length != count))
+      throw new IllegalArgumentException(what
+          + " minimum/maximum list must match number of " + what.toLowerCase()
+          + "s");
+    return TrackLimits.create(min != null ? min.clone() : null,
+        max != null ? max.clone() : null);
+  }
+
+  /**
+   * Converts a string of comma separated integer values to an integer array
+   *
+   * @param list
+   * @param attribute
+   *          name of the attribute, used in the error message
+   * @throws IllegalArgumentException
+   * @return the converted array
+   */
+  static int[] parse(String list, String attribute)
+  {
+    try
+    {
+      String[] cw = list.split(",");
+      int[] ia = new int[cw.length];
+      for (int i = 0; i < cw.length; i++)
+      {
+        ia[i] = Integer.parseInt(cw[i]);
+      }
+      return ia;
+    }
+    catch (NumberFormatException nfe)
+    {
+      throw new IllegalArgumentException("Illegal value in " + attribute
+          + " attribute.", nfe);
+    }
+  }
+
+  public int getColumnCount()
+  {
+    return colCount;
+  }
+
+  public int getRowCount()
+  {
+    return rowCount;
+  }
+
+  public int getColumnWidth(int col)
+  {
+    return colWidths[col];
+  }
+
+  public int getRowHeight(int row)
+  {
+    checkRow(row);
+    return rowHeights[row];
+  }
+
+  public int getColumnWeight(int col)
+  {
+    return colWeights[col];
+  }
+
+  public int getRowWeight(int row)
+  {
+    checkRow(row);
+    return rowWeights[row];
+  }
+
+  /**
+   * @return the minimum width of a column, 0 when it has none
+   */
+  public int getColumnMinWidth(int col)
+  {
+    return colLimits.getMin(col);
+  }
+
+  /**
+   * @return the maximum width of a column, 0 when it has none
+   */
+  public int getColumnMaxWidth(int col)
+  {
+    return colLimits.getMax(col);
+  }
+
+  /**
+   * @return the minimum height of a row, 0 when it has none
+   */
+  public int getRowMinHeight(int row)
+  {
+    checkRow(row);
+    return rowLimits.getMin(row);
+  }
+
+  /**
+   * @return the maximum height of a row, 0 when it has none
+   */
+  public int getRowMaxHeight(int row)
+  {
+    checkRow(row);
+    return rowLimits.getMax(row);
+  }
+
+  /**
+   * The row arrays may be longer than the rows of this spec and hold rows
+   * appended by a later spec.
+   *
+   * @throws IndexOutOfBoundsException
+   *           when the row is not a row of this spec
+   */
+  private void checkRow(int row)
+  {
+    if (row < 0 || row >= rowCount)
+      throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount
+          + " rows");
+  }
+
+  /**
+   * @return true when all columns and rows have a fixed size
+   */
+  public boolean isStatic()
+  {
+    return columnsStatic && rowsStatic;
+  }
+
+  /**
+   * Copies all column arrays, use a Builder to change many columns.
+   *
+   * @return a copy of this spec with a changed column width. The spec grows
+   *         when col is beyond the last column.
+   */
+  GridSpec withColumnWidth(int col, int width)
+  {
+    int count = Math.max(colCount, col + 1);
+    int[] widths = copyOf(colWidths, colCount, count);
+    widths[col] = width;
+    return new GridSpec(widths, rowHeights, copyOf(colWeights, colCount,
+        count), rowWeights, rowCount, rowsUsed, colLimits, rowLimits);
+  }
+
+  /**
+   * Copies all row arrays, use a Builder or withAppendedRow() to change or
+   * add many rows.
+   *
+   * @return a copy of this spec with a changed row height. The spec grows
+   *         when row is beyond the last row.
+   */
+  GridSpec withRowHeight(int row, int height)
+  {
+    int count = Math.max(rowCount, row + 1);
+    int[] heights = copyOf(rowHeights, rowCount, count);
+    heights[row] = height;
+    return new GridSpec(colWidths, heights, colWeights, copyOf(rowWeights,
+        rowCount, count), count, null, colLimits, rowLimits);
+  }
+
+  /**
+   * @return a copy of this spec with a changed column weight
+   */
+  GridSpec withColumnWeight(int col, int weight)
+  {
+    int[] weights = colWeights.clone();
+    weights[col] = weight;
+    return new GridSpec(colWidths, rowHeights, weights, rowWeights, rowCount,
+        rowsUsed, colLimits, rowLimits);
+  }
+
+  /**
+   * @return a copy of this spec with a changed row weight
+   */
+  GridSpec withRowWeight(int row, int weight)
+  {
+    int[] weights = copyOf(rowWeights, rowCount, rowCount);
+    weights[row] = weight;
+    return new GridSpec(colWidths, copyOf(rowHeights, rowCount, rowCount),
+        colWeights, weights, rowCount, null, colLimits, rowLimits);
+  }
+
+  /**
+   * @return a copy of this spec with a changed minimum and maximum column
+   *         width
+   */
+  GridSpec withColumnLimits(int col, int min, int max)
+  {
+    return new GridSpec(colWidths, rowHeights, colWeights, rowWeights,
+        rowCount, rowsUsed, colLimits.with(col, min, max), rowLimits);
+  }
+
+  /**
+   * @return a copy of this spec with a changed minimum and maximum row
+   *         height
+   */
+  GridSpec withRowLimits(int row, int min, int max)
+  {
+    return new GridSpec(colWidths, rowHeights, colWeights, rowWeights,
+        rowCount, rowsUsed, colLimits, rowLimits.with(row, min, max));
+  }
+
+  /**
+   * Appends a row. Takes amortized constant time: the row arrays are shared
+   * with this spec and grow geometrically. The first spec appended to this
+   * spec writes its row beyond the rows of this spec, this spec does not
+   * change. Later appends to this spec copy the rows.
+   *
+   * @return a copy of this spec with one more row
+   */
+  public GridSpec withAppendedRow(int height, int weight)
+  {
+    if (height < 0 && -height > rowCount)
+      throw new IllegalArgumentException(
+          "Column or Row referencing non existing column or row");
+
+    int[] heights = rowHeights;
+    int[] weights = rowWeights;
+    AtomicInteger used = rowsUsed;
+    // nobody appended to this spec yet when the next free row can be claimed
+    if (rowCount >= heights.length
+        || !used.compareAndSet(rowCount, rowCount + 1))
+    {
+      int capacity = Math.max(4, rowCount * 2);
+      heights = copyOf(rowHeights, rowCount, capacity);
+      weights = copyOf(rowWeights, rowCount, capacity);
+      used = new AtomicInteger(rowCount + 1);
+    }
+    heights[rowCount] = height;
+    weights[rowCount] = weight;
+    return new GridSpec(this, heights, weights, used, height, weight);
+  }
+
+  /**
+   * @return a builder initialized with the columns, rows and weights of this
+   *         spec
+   */
+  public Builder buildUpon()
+  {
+    return new Builder(this);
+  }
+
+  /**
+   * Collects changes to columns, rows and weights and creates a new spec
+   * from them at once. Setting a column/row beyond the last one grows the
+   * grid, new columns/rows have size 0 and weight 0. Arrays grow
+   * geometrically so appending many columns/rows takes linear time. Weight
+   * sums and references are computed once by build().
+   *
+   * A builder is not thread safe.
+   */
+  public static final class Builder
+  {
+    private int mColCount;
+    private int mRowCount;
+    private int[] mColWidths;
+    private int[] mRowHeights;
+    private int[] mColWeights;
+    private int[] mRowWeights;
+    private int[] mColMinWidths;
+    private int[] mColMaxWidths;
+    private int[] mRowMinHeights;
+    private int[] mRowMaxHeights;
+
+    public Builder()
+    {
+      mColWidths = new int[4];
+      mColWeights = new int[4];
+      mColMinWidths = new int[4];
+      mColMaxWidths = new int[4];
+      mRowHeights = new int[4];
+      mRowWeights = new int[4];
+      mRowMinHeights = new int[4];
+      mRowMaxHeights = new int[4];
+    }
+
+    public Builder(GridSpec spec)
+    {
+      mColCount = spec.colCount;
+      mRowCount = spec.rowCount;
+      mColWidths = copyOf(spec.colWidths, mColCount, Math.max(mColCount, 4));
+      mColWeights = copyOf(spec.colWeights, mColCount, Math.max(mColCount, 4));
+      mRowHeights = copyOf(spec.rowHeights, mRowCount, Math.max(mRowCount, 4));
+      mRowWeights = copyOf(spec.rowWeights, mRowCount, Math.max(mRowCount, 4));
+      mColMinWidths = spec.colLimits.copyMin(mColWidths.length);
+      mColMaxWidths = spec.colLimits.copyMax(mColWidths.length);
+      mRowMinHeights = spec.rowLimits.copyMin(mRowHeights.length);
+      mRowMaxHeights = spec.rowLimits.copyMax(mRowHeights.length);
+    }
+
+    public int getColumnCount()
+    {
+      return mColCount;
+    }
+
+    public int getRowCount()
+    {
+      return mRowCount;
+    }
+
+    /**
+     * Sets the number of columns. Columns beyond the count are dropped.
+     */
+    public Builder setColumnCount(int count)
+    {
+      ensureColumns(count);
+      for (int i = count; i < mColCount; i++)
+      {
+        mColWidths[i] = 0;
+        mColWeights[i] = 0;
+        mColMinWidths[i] = 0;
+        mColMaxWidths[i] = 0;
+      }
+      mColCount = count;
+      return this;
+    }
+
+    /**
+     * Sets the number of rows. Rows beyond the count are dropped.
+     */
+    public Builder setRowCount(int count)
+    {
+      ensureRows(count);
+      for (int i = count; i < mRowCount; i++)
+      {
+        mRowHeights[i] = 0;
+        mRowWeights[i] = 0;
+        mRowMinHeights[i] = 0;
+        mRowMaxHeights[i] = 0;
+      }
+      mRowCount = count;
+      return this;
+    }
+
+    public Builder setColumnWidth(int col, int width)
+    {
+      growColumns(col + 1);
+      mColWidths[col] = width;
+      return this;
+    }
+
+    public Builder setRowHeight(int row, int height)
+    {
+      growRows(row + 1);
+      mRowHeights[row] = height;
+      return this;
+    }
+
+    public Builder setColumnWeight(int col, int weight)
+    {
+      growColumns(col + 1);
+      mColWeights[col] = weight;
+      return this;
+    }
+
+    public Builder setRowWeight(int row, int weight)
+    {
+      growRows(row + 1);
+      mRowWeights[row] = weight;
+      return this;
+    }
+
+    /**
+     * Sets the minimum and maximum width of a column, 0 for none.
+     */
+    public Builder setColumnLimits(int col, int minWidth, int maxWidth)
+    {
+      growColumns(col + 1);
+      mColMinWidths[col] = minWidth;
+      mColMaxWidths[col] = maxWidth;
+      return this;
+    }
+
+    /**
+     * Sets the minimum and maximum height of a row, 0 for none.
+     */
+    public Builder setRowLimits(int row, int minHeight, int maxHeight)
+    {
+      growRows(row + 1);
+      mRowMinHeights[row] = minHeight;
+      mRowMaxHeights[row] = maxHeight;
+      return this;
+    }
+
+    /**
+     * Appends a row after the last one.
+     *
+     * @return the index of the new row
+     */
+    public int addRow(int height, int weight)
+    {
+      int row = mRowCount;
+      growRows(row + 1);
+      mRowHeights[row] = height;
+      mRowWeights[row] = weight;
+      return row;
+    }
+
+    /**
+     * Appends a column after the last one.
+     *
+     * @return the index of the new column
+     */
+    public int addColumn(int width, int weight)
+    {
+      int col = mColCount;
+      growColumns(col + 1);
+      mColWidths[col] = width;
+      mColWeights[col] = weight;
+      return col;
+    }
+
+    /**
+     * Creates the spec. The builder can be used again afterwards.
+     *
+     * @throws IllegalArgumentException
+     *           when a column/row references a non existing column/row or a
+     *           minimum exceeds its maximum
+     */
+    public GridSpec build()
+    {
+      return new GridSpec(copyOf(mColWidths, mColCount, mColCount), copyOf(
+          mRowHeights, mRowCount, mRowCount), copyOf(mColWeights, mColCount,
+          mColCount), copyOf(mRowWeights, mRowCount, mRowCount), mRowCount,
+          null, TrackLimits.create(copyOf(mColMinWidths, mColCount, mColCount),
+              copyOf(mColMaxWidths, mColCount, mColCount)), TrackLimits.create(
+              copyOf(mRowMinHeights, mRowCount, mRowCount), copyOf(
+                  mRowMaxHeights, mRowCount, mRowCount)));
+    }
+
+    private void growColumns(int count)
+    {
+      if (count > mColCount)
+      {
+        ensureColumns(count);
+        mColCount = count;
+      }
+    }
+
+    private void growRows(int count)
+    {
+      if (count > mRowCount)
+      {
+        ensureRows(count);
+        mRowCount = count;
+      }
+    }
+
+    private void ensureColumns(int count)
+    {
+      if (count > mColWidths.length)
+      {
+        int capacity = Math.max(count, mColWidths.length * 2);
+        mColWidths = copyOf(mColWidths, mColCount, capacity);
+        mColWeights = copyOf(mColWeights, mColCount, capacity);
+        mColMinWidths = copyOf(mColMinWidths, mColCount, capacity);
+        mColMaxWidths = copyOf(mColMaxWidths, mColCount, capacity);
+      }
+    }
+
+    private void ensureRows(int count)
+    {
+      if (count > mRowHeights.length)
+      {
+        int capacity = Math.max(count, mRowHeights.length * 2);
+        mRowHeights = copyOf(mRowHeights, mRowCount, capacity);
+        mRowWeights = copyOf(mRowWeights, mRowCount, capacity);
+        mRowMinHeights = copyOf(mRowMinHeights, mRowCount, capacity);
+        mRowMaxHeights = copyOf(mRowMaxHeights, mRowCount, capacity);
+      }
+    }
+  }
+
+  /**
+   * Copies the first count values of src to a new array of the given length
+   */
+  private static int[] copyOf(int[] src, int count, int length)
+  {
+    int[] dest = new int[length];
+    System.arraycopy(src, 0, dest, 0, Math.min(count, length));
+    return dest;
+  }
+
+  private static int sum(int[] values, int count)
+  {
+    int sum = 0;
+    for (int i = 0; i < count; i++)
+      sum += values[i];
+    return sum;
+  }
+
+  private static boolean isStatic(int[] sizes, int count)
+  {
+    for (int i = 0; i < count; i++)
+    {
+      if (sizes[i] <= 0)
+        return false;
+    }
+    return true;
+  }
+}
@@ -1,19 +1,23 @@
 package com.proficiosoftware.higlayout;
 
-import java.util.ArrayList;
-
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.util.AttributeSet;
+import android.util.DisplayMetrics;
 import android.util.Log;
-import android.util.MonthDisplayHelper;
 import android.util.TypedValue;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
+import android.view.ViewTreeObserver;
+import android.view.animation.Interpolator;
 
 /*
  * HIGLayout.java - HIGLayout layout manager
@@ -58,41 +62,187 @@ import android.view.ViewParent;
  */
 public class HIGLayout extends ViewGroup
 {
+  /** Not a subgrid, see setSubgrid() */
+  public static final int SUBGRID_NONE = 0;
+  /** Uses the columns of the parent HIGLayout it spans */
+  public static final int SUBGRID_COLUMNS = 1;
+  /** Uses the rows of the parent HIGLayout it spans */
+  public static final int SUBGRID_ROWS = 2;
+  /** Uses both the columns and the rows of the parent HIGLayout it spans */
+  public static final int SUBGRID_BOTH = SUBGRID_COLUMNS | SUBGRID_ROWS;
+
+  /** The layout is narrower than the first breakpoint, see setBreakpoints() */
+  public static final int NO_BREAKPOINT = -1;
 
   private static final int WIDTH_ZERO = 0;
   private static final int HEIGHT_ZERO = 0;
   private static final String LOGTAG = "HIGLayout";
-
-  // used to keep the heights and widths supplied in XML
-  private int[] mColWidths;
-  private int[] mRowHeights;
-  private int mColCount;
-  private int mRowCount;
-
-  // used to keep the weights supplied in XML
-  private int[] mWidenWeights;
-  private int[] mHeightenWeights;
+  private static final int NO_CHILD = -1;
+  private static final int DEFAULT_ESTIMATED_HEIGHT_DP = 48;
+  private static final int MAX_WINDOW_ROUNDS = 4;
+  private static final int FRAME_DELAY_MS = 16;
+
+  // android.os.Trace exists since API 18
+  private static final boolean TRACE =
+      Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+  // Computes the column widths and row heights
+  private GridSolver mSolver;
+
+  // Exposes the children to the solver
+  private final ChildNodes mNodes = new ChildNodes();
+
+  // Tells the solver to rebuild its index of children per column/row when
+  // children are added or removed. Changed layout params are detected by
+  // comparing the cell and span of a child with those it was indexed with.
+  private final PassThroughHierarchyChangeListener mPassThroughListener =
+      new PassThroughHierarchyChangeListener();
+
+  // Lays out again when the column group was solved with other widths. The
+  // group only holds it weakly.
+  private final ColumnGroupListener mColumnGroupListener =
+      new ColumnGroupListener();
+
+  // Solves the column group after the frame its members added their widths
+  // in
+  private final ColumnGroupSolver mColumnGroupSolver =
+      new ColumnGroupSolver();
+
+  // Column widths and row heights solved ahead of time, null if none
+  private GridSolution mSolution;
+
+  // Index of the first child added at the end since the previous measure
+  // pass. Only those children are measured, the others keep their size.
+  private int mFirstAppendedChild = NO_CHILD;
+
+  // Set when the next measure pass has to measure all children, because
+  // children or columns/rows changed
+  private boolean mMeasureAllChildren = true;
+
+  // Set when a child may have requested a layout since the children were
+  // last checked: a request reached requestLayout(), or a child asked
+  // isLayoutRequested() while this layout was waiting for a layout already
+  // and its request stopped here. Only then the next pass looks for the
+  // children that requested a layout
+  private boolean mCheckChildren;
+
+  // Set while this layout requests a layout no child caused, e.g. to move
+  // the window after scrolling
+  private boolean mRequestingOwnLayout;
+
+  // The children that requested a layout found by the current pass
+  private int[] mRequestedChildren = new int[0];
+  private int mRequestedCount;
+
+  // Outcome of recent measure passes by constraints
+  private final MeasureCache mMeasureCache = new MeasureCache(
+      MeasureCache.DEFAULT_SIZE);
+
+  // Changes whenever a layout is requested, i.e. a child (or this layout)
+  // changed. Passes are only taken from the measure cache for the same
+  // state and when no child requested a layout since the children were
+  // last checked. A child's request only reaches this layout when it isn't
+  // waiting for a layout itself, so the state alone can't tell whether a
+  // pass is current.
+  private int mChildState;
+
+  // Number of children remeasured/not remeasured at their final size in
+  // onLayout()
+  private int mLayoutRemeasures = 0;
+  private int mLayoutRemeasuresAvoided = 0;
+
+  // The constraints of the previous measure pass
+  private int mLastWidthMeasureSpec;
+  private int mLastHeightMeasureSpec;
+
+  // Virtualized mode: only the children in the visible part of the layout
+  // plus a prefetch margin are measured and laid out. Children that were
+  // never measured count with an estimated height and the current width of
+  // their columns.
+  private boolean mVirtualized = false;
+  private int mPrefetchMargin = -1;
+  private int mEstimatedChildHeight = -1;
+  private final ViewportListener mViewportListener = new ViewportListener();
+  private final Rect mVisibleRect = new Rect();
+
+  // The part of the layout whose children are measured and laid out
+  private int mWindowTop;
+  private int mWindowBottom;
+
+  // Children in the window, filled by findWindowNodes()
+  private int[] mWindowNodes = new int[0];
+
+  // Children laid out by the previous layout pass in virtualized mode. Any
+  // of them not in the window anymore is laid out at zero size, so it
+  // doesn't draw at its old bounds. A child count of -1 means the previous
+  // pass didn't track them and all children are checked.
+  private int[] mLaidOutNodes = new int[0];
+  private int mLaidOutCount;
+  private int mLaidOutChildCount = -1;
+  private int[] mWindowStamps = new int[0];
+  private int mWindowStamp;
+
+  // Whether mViewportListener is registered with the ViewTreeObserver
+  private boolean mViewportListenerAdded = false;
+
+  // Children measured before mMeasureAllPass have to be measured again when
+  // they enter the window
+  private int mMeasurePass = 0;
+  private int mMeasureAllPass = 0;
+
+  // Tracks of the parent this layout adopts as a subgrid, SUBGRID_NONE when
+  // it has its own
+  private int mSubgrid = SUBGRID_NONE;
+
+  // The sizes this subgrid needs in the tracks of the parent, read by the
+  // parent when it solves its grid
+  private int[] mSubgridWidths = new int[0];
+  private int[] mSubgridHeights = new int[0];
+
+  // The track sizes taken from the parent
+  private int[] mAdoptedWidths = new int[0];
+  private int[] mAdoptedHeights = new int[0];
+
+  // Set when the tracks were adopted and the children not laid out since
+  private boolean mAdoptedLayoutPending = false;
+
+  // Axes the last measure pass didn't distribute because the parent adopts
+  // them. onLayout() distributes them when the parent didn't.
+  private int mUndistributedAxes = SUBGRID_NONE;
+
+  // Specs by the minimum width from which they are used, ascending. Below
+  // the first breakpoint the base spec is used
+  private int[] mBreakpointWidths = new int[0];
+  private GridSpec[] mBreakpointSpecs = new GridSpec[0];
+  private int mActiveBreakpoint = NO_BREAKPOINT;
+  private GridSpec mBaseSpec;
+
+  // Reports the cost of every pass, both null when nobody listens
+  private OnLayoutMetricsListener mMetricsListener;
+  private LayoutMetrics mMetrics;
+
+  // Animates the columns/rows between two solved states
+  private final TrackAnimator mTrackAnimator = new TrackAnimator();
+
+  // Incremented whenever the column/row sizes change: by every measure pass
+  // and animation frame. Tells whether mGeometry is up to date
+  private int mGeometryVersion = 0;
+  private GridGeometry mGeometry;
 
   // Display a debug grid
   private boolean mShowGrid = false;
 
-  // Holds the computed values after scaling to the correct with and height of
-  // the parent layout
-  private int[] mComputedWidths;
-  private int[] mComputedHeights;
-
-  private int mWidenWeightsSum = 0;
-  private int mHeightenWeightsSum = 0;
-
-  // Holds the pixel positions of where the columns/row start
-  private int[] cacheColumnsX;
-  private int[] cacheRowsY;
   private Paint mGridPaint = null;
 
+  /**
+   * Constructs a layout in code. It starts without columns and rows, add
+   * them with setSpec(), setColumnWidthsHeights() or the column/row setters.
+   */
   public HIGLayout(Context context)
   {
     super(context);
-
+    super.setOnHierarchyChangeListener(mPassThroughListener);
+    mSolver = new GridSolver(new GridSpec(new int[0], new int[0], null, null));
   }
 
   public HIGLayout(Context context, AttributeSet attrs)
@@ -112,69 +262,35 @@ public class HIGLayout extends ViewGroup
   public HIGLayout(Context context, AttributeSet attrs, int defStyleAttr)
   {
     super(context, attrs, defStyleAttr);
+    super.setOnHierarchyChangeListener(mPassThroughListener);
 
     // Gets the styles from XML file
 
     TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.HIGlayout,
         defStyleAttr, 0);
 
-    try
-    {
-      String colw = a.getString(R.styleable.HIGlayout_column_widths);
-      // FIXME: RuntimeException is thrown when showing in eclipse designer
-      if (colw == null)
-        throw new RuntimeException("Missing attribute: column_widths");
-      mColWidths = stringToIntArray(colw);
-    }
-    catch (NumberFormatException nfe)
-    {
-      throw new IllegalArgumentException(
-          "Illegal value in column_widths attribute.", nfe);
-    }
-
-    try
-    {
-      String rowh = a.getString(R.styleable.HIGlayout_row_heights);
-      if (rowh == null)
-        throw new RuntimeException("Missing attribute: row_heights");
-      mRowHeights = stringToIntArray(rowh);
-    }
-    catch (NumberFormatException nfe)
-    {
-      throw new IllegalArgumentException(
-          "Illegal value in row_heights attribute.", nfe);
-    }
-
-    mColCount = mColWidths.length;
-    mRowCount = mRowHeights.length;
-
-    try
-    {
-      String colw = a.getString(R.styleable.HIGlayout_column_weights);
-      if (colw == null)
-        mWidenWeights = new int[mColWidths.length];
-      else
-        mWidenWeights = stringToIntArray(colw);
-    }
-    catch (NumberFormatException nfe)
-    {
-      throw new IllegalArgumentException(
-          "Illegal value in column_weights attribute.", nfe);
-    }
-
-    try
-    {
-      String roww = a.getString(R.styleable.HIGlayout_row_weights);
-      if (roww == null)
-        mHeightenWeights = new int[mRowHeights.length];
-      else
-        mHeightenWeights = stringToIntArray(roww);
-    }
-    catch (NumberFormatException nfe)
-    {
-      throw new IllegalArgumentException(
-          "Illegal value in row_weights attribute.", nfe);
-    }
+    String colw = a.getString(R.styleable.HIGlayout_column_widths);
+    // FIXME: RuntimeException is thrown when showing in eclipse designer
+    if (colw == null)
+      throw new RuntimeException("Missing attribute: column_widths");
+    String rowh = a.getString(R.styleable.HIGlayout_row_heights);
+    if (rowh == null)
+      throw new RuntimeException("Missing attribute: row_heights");
+
+    // layouts inflated from the same attributes share the parsed spec
+    GridSpec spec = GridSpec.obtain(colw, rowh,
+        a.getString(R.styleable.HIGlayout_column_weights),
+        a.getString(R.styleable.HIGlayout_row_weights),
+        a.getString(R.styleable.HIGlayout_column_min_widths),
+        a.getString(R.styleable.HIGlayout_column_max_widths),
+        a.getString(R.styleable.HIGlayout_row_min_heights),
+        a.getString(R.styleable.HIGlayout_row_max_heights));
+
+    mSubgrid = a.getInt(R.styleable.HIGlayout_subgrid, SUBGRID_NONE);
+
+    String breakpoints = a.getString(R.styleable.HIGlayout_breakpoints);
+    if (breakpoints != null)
+      parseBreakpoints(breakpoints);
 
     mShowGrid = a.getBoolean(R.styleable.HIGlayout_show_grid, false);
     if (mShowGrid)
@@ -187,23 +303,7 @@ public class HIGLayout extends ViewGroup
       Log.i(LOGTAG, "Grid visualization enabled");
     }
 
-    if (mHeightenWeights.length != mRowCount)
-      throw new IllegalArgumentException(
-          "RowWeights list must match number of rows");
-    if (mWidenWeights.length != mColCount)
-      throw new IllegalArgumentException(
-          "ColumnWeights list must match number of columns");
-
-    mWidenWeightsSum = 0;
-    for (int i = 0; i < mColCount; i++)
-      mWidenWeightsSum += mWidenWeights[i];
-
-    mHeightenWeightsSum = 0;
-    for (int i = 0; i < mRowCount; i++)
-      mHeightenWeightsSum += mHeightenWeights[i];
-
-    mComputedWidths = new int[mColCount];
-    mComputedHeights = new int[mRowCount];
+    mSolver = new GridSolver(spec);
 
     a.recycle();
   }
@@ -217,10 +317,12 @@ public class HIGLayout extends ViewGroup
    * 2. For each child, find its position in the grid and position it based
    *    on absolute col/row values.
    * 3. Initial position is in the center of the cell.
-   * 4. After than inspect the anchor and widen the child accordingly
+   * 4. After than inspect the anchor and align or widen the child
+   *    accordingly. Anchors are compiled to flags by LayoutParams.
    * 5. Remeasure the child to make sure it knows its new size. This is
    *    necessary because e.g. Button doesn't layout the text correctly if
-   *    resized after measuring.   
+   *    resized after measuring. Children that already have the new size
+   *    as measured size are not remeasured.
    */
   @Override
   protected void onLayout(boolean changed, int l, int t, int r, int b)
@@ -230,108 +332,225 @@ public class HIGLayout extends ViewGroup
     int h = b - t;
 
     // TODO: should I position myself as well or just my children?
+
+    // The target of a track animation has just been solved, start animating
+    // from the sizes before
+    if (mTrackAnimator.mPending)
+      mTrackAnimator.start();
+
+    if (TRACE)
+      Trace.beginSection("HIGLayout#onLayout");
+    LayoutMetrics metrics = mMetrics;
+    if (metrics != null)
+      metrics.beginLayout(mLayoutRemeasures);
+
+    mAdoptedLayoutPending = false;
+    if (mUndistributedAxes != SUBGRID_NONE)
+      distributeUndistributed(w, h);
+    layoutChildren(!mTrackAnimator.mRunning);
+
+    if (metrics != null)
+    {
+      metrics.endLayout(mLayoutRemeasures);
+      mMetricsListener.onLayoutPass(this, metrics);
+    }
+    if (TRACE)
+      Trace.endSection();
+  }
+
+  /**
+   * Positions all children in their cells.
+   *
+   * @param remeasure
+   *          when false children are only positioned, not measured again at
+   *          their final size
+   */
+  private void layoutChildren(boolean remeasure)
+  {
     final int count = getChildCount();
 
     // Get the absolute column/row coordinates
-    int x[] = getColumnsX();
-    int y[] = getRowsY();
+    int x[] = mSolver.getColumnsX(getPaddingLeft());
+    int y[] = mSolver.getRowsY(getPaddingTop());
+
+    if (mVirtualized)
+    {
+      // only the children in the window measured by onMeasure()
+      int n = findWindowNodes(y);
+      if (mWindowStamps.length < count)
+        mWindowStamps = new int[count];
+      int stamp = ++mWindowStamp;
+      for (int k = 0; k < n; k++)
+      {
+        mWindowStamps[mWindowNodes[k]] = stamp;
+        layoutChild(mWindowNodes[k], x, y, remeasure);
+      }
+      hideChildrenOutsideWindow(count, stamp);
+
+      // keep the window to find the children leaving it next time
+      int[] nodes = mLaidOutNodes;
+      mLaidOutNodes = mWindowNodes;
+      mWindowNodes = nodes;
+      mLaidOutCount = n;
+      mLaidOutChildCount = count;
+      return;
+    }
 
     // For each child in the view
     for (int i = 0; i < count; i++)
+      layoutChild(i, x, y, remeasure);
+  }
+
+  /**
+   * Lays out the children that left the window at zero size. Only the
+   * children laid out by the previous pass are checked, unless children
+   * were added or removed since.
+   */
+  private void hideChildrenOutsideWindow(int count, int stamp)
+  {
+    if (mLaidOutChildCount != count)
+    {
+      for (int i = 0; i < count; i++)
+        if (mWindowStamps[i] != stamp)
+          hideChild(getChildAt(i));
+      return;
+    }
+    for (int k = 0; k < mLaidOutCount; k++)
     {
-      // Get the View to position
-      View child = getChildAt(i);
+      int i = mLaidOutNodes[k];
+      if (mWindowStamps[i] != stamp)
+        hideChild(getChildAt(i));
+    }
+  }
 
-      // Get the Views specific properties (like position and anchoring)
-      LayoutParams c = (LayoutParams)child.getLayoutParams();
+  private static void hideChild(View child)
+  {
+    if (child.getWidth() != 0 || child.getHeight() != 0)
+      child.layout(0, 0, 0, 0);
+  }
 
-      /* first we centre the component into its cell */
-      int width = child.getMeasuredWidth();
-      int height = child.getMeasuredHeight();
-      int cellw;
-      int cellh;
-      if (c.w < 0) // use fixed width specified in XML.
-      {
-        width = -c.w;
-        cellw = x[c.x + 1] - x[c.x];
-      }
-      else
+  /**
+   * Positions a child in its cell according to its anchor.
+   */
+  private void layoutChild(int i, int[] x, int[] y, boolean remeasure)
+  {
+    // Get the View to position
+    View child = getChildAt(i);
+
+    // Get the Views specific properties (like position and anchoring)
+    LayoutParams c = (LayoutParams)child.getLayoutParams();
+
+    /* first find the size of the child and its cell */
+    int width = mNodes.getPreferredWidth(i);
+    int height = mNodes.getPreferredHeight(i);
+    int cellw;
+    int cellh;
+    if (c.w < 0) // use fixed width specified in XML.
+    {
+      width = -c.w;
+      cellw = x[c.x + 1] - x[c.x];
+    }
+    else
+    {
+      // compute width of the child
+      cellw = x[c.x + c.w] - x[c.x];
+    }
+
+    if (c.h < 0)// use fixed height specified in XML.
+    {
+      height = -c.h;
+      cellh = y[c.y + 1] - y[c.y];
+    }
+    else
+    {
+      // compute height of the child
+      cellh = y[c.y + c.h] - y[c.y];
+    }
+
+    /* then align or stretch according to the anchor */
+    int anchor = c.getAnchorFlags();
+
+    // a subgrid fills the tracks it adopts
+    int subgridAxes = getSubgridAxes(child, c);
+    if ((subgridAxes & SUBGRID_COLUMNS) != 0)
+      anchor |= LayoutParams.ANCHOR_HORIZONTAL;
+    if ((subgridAxes & SUBGRID_ROWS) != 0)
+      anchor |= LayoutParams.ANCHOR_VERTICAL;
+    int left = x[c.x];
+    switch (anchor & LayoutParams.ANCHOR_HORIZONTAL)
+    {
+      case LayoutParams.ANCHOR_LEFT:
+        break;
+      case LayoutParams.ANCHOR_RIGHT:
+        left += cellw - width;
+        break;
+      case LayoutParams.ANCHOR_HORIZONTAL:
+        width = cellw;
+        break;
+      default: // centre
+        left += (cellw - width) >> 1;
+    }
+
+    int top = y[c.y];
+    switch (anchor & LayoutParams.ANCHOR_VERTICAL)
+    {
+      case LayoutParams.ANCHOR_TOP:
+        break;
+      case LayoutParams.ANCHOR_BOTTOM:
+        top += cellh - height;
+        break;
+      case LayoutParams.ANCHOR_VERTICAL:
+        height = cellh;
+        break;
+      default: // centre
+        top += (cellh - height) >> 1;
+    }
+
+    // Remeasure the child at its final size to ensure it shows correctly.
+    // Not needed when it was already measured with exactly these specs, a
+    // child measured AT_MOST may lay out differently at EXACTLY the same
+    // size. While the tracks animate children are only moved.
+    // A subgrid takes its columns/rows from here instead of solving again.
+    if (remeasure)
+    {
+      int widthSpec = MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY);
+      int heightSpec = MeasureSpec
+          .makeMeasureSpec(height, MeasureSpec.EXACTLY);
+      if (subgridAxes != SUBGRID_NONE
+          && ((HIGLayout)child).adoptTracks(subgridAxes, x, c.x, y, c.y,
+              width, height))
       {
-        // compute width of the child
-        cellw = x[c.x + c.w] - x[c.x];
+        mLayoutRemeasuresAvoided++;
       }
-
-      if (c.h < 0)// use fixed height specified in XML.
+      else if (c.mWidthMeasureSpec != widthSpec
+          || c.mHeightMeasureSpec != heightSpec
+          || child.getMeasuredWidth() != width
+          || child.getMeasuredHeight() != height)
       {
-        height = -c.h;
-        cellh = y[c.y + 1] - y[c.y];
+        measureChildWithSpecs(child, c, widthSpec, heightSpec);
+        mLayoutRemeasures++;
+        if (subgridAxes != SUBGRID_NONE)
+          ((HIGLayout)child).adoptTracks(subgridAxes, x, c.x, y, c.y, width,
+              height);
       }
       else
       {
-        // compute height of the child
-        cellh = y[c.y + c.h] - y[c.y];
+        mLayoutRemeasuresAvoided++;
       }
+    }
+    // Finally position the child
+    child.layout(left, top, left + width, top + height);
 
-      boolean allowXSize = true;
-      boolean allowYSize = true;
-
-      // position the child in the centre
-      float dw = ((float)(cellw - width)) / 2.0f;
-      float dh = ((float)(cellh - height)) / 2.0f;
-      float compx = (float)x[c.x] + dw;
-      float compy = (float)y[c.y] + dh;
-
-      /* now anchor to cell borders */
-      String anchor = c.anchor;
-      boolean xSize = false; /* first move, then change width (when opposite border) */
-      boolean ySize = false;
-      if (anchor != null)
+    // a subgrid that kept its size isn't laid out by layout(), its children
+    // still have to move to the adopted tracks
+    if (subgridAxes != SUBGRID_NONE)
+    {
+      HIGLayout subgrid = (HIGLayout)child;
+      if (subgrid.mAdoptedLayoutPending)
       {
-        for (int j = anchor.length() - 1; j >= 0; j--)
-        {
-          if (anchor.charAt(j) == 'l')
-          {
-            compx = (float)x[c.x];
-            if (xSize && allowXSize)
-              width = cellw;
-            xSize = true;
-          }
-          else if (anchor.charAt(j) == 'r')
-          {
-            if (xSize && allowXSize)
-              width = cellw;
-            else
-              compx += dw;
-            xSize = true;
-          }
-          else if (anchor.charAt(j) == 't')
-          {
-            compy = (float)y[c.y];
-            if (ySize && allowYSize)
-              height = cellh;
-            ySize = true;
-          }
-          else if (anchor.charAt(j) == 'b')
-          {
-            if (ySize && allowYSize)
-              height = cellh;
-            else
-              compy += dh;
-            ySize = true;
-          }
-          else
-          {
-            throw new RuntimeException("Wrong character in anchor.");
-          }
-        }
+        subgrid.mAdoptedLayoutPending = false;
+        subgrid.layoutChildren(true);
       }
-
-      // Force child remeasure to ensure it shows correctly
-      child.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
-          MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
-      // Finally position the child
-      child.layout((int)compx, (int)compy, (int)(compx + width),
-          (int)(compy + height));
     }
   }
 
@@ -340,19 +559,161 @@ public class HIGLayout extends ViewGroup
    */
   @Override
   protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
+  {
+    if (TRACE)
+      Trace.beginSection("HIGLayout#onMeasure");
+    LayoutMetrics metrics = mMetrics;
+    if (metrics != null)
+      metrics.beginMeasure(mSolver.getTracksComputed());
+
+    measureGrid(widthMeasureSpec, heightMeasureSpec, metrics);
+
+    // The pass solved new target sizes for a running track animation, e.g.
+    // because a child changed. Animate on towards them
+    if (mTrackAnimator.mRunning)
+      mTrackAnimator.retarget();
+
+    if (metrics != null)
+    {
+      metrics.endMeasure(mSolver.getTracksComputed());
+      mMetricsListener.onMeasurePass(this, metrics);
+    }
+    if (TRACE)
+      Trace.endSection();
+  }
+
+  /**
+   * Measures the children and solves the grid.
+   *
+   * @param metrics
+   *          receives the time of each step, null when nobody listens
+   */
+  private void measureGrid(int widthMeasureSpec, int heightMeasureSpec,
+      LayoutMetrics metrics)
   {
     int widthMode = MeasureSpec.getMode(widthMeasureSpec);
     int heightMode = MeasureSpec.getMode(heightMeasureSpec);
     int imposedWidth = MeasureSpec.getSize(widthMeasureSpec);
     int imposedHeight = MeasureSpec.getSize(heightMeasureSpec);
+    mGeometryVersion++;
+
+    // Switching to the spec of another breakpoint moves the children to
+    // their cells for it, found below like any other move
+    if (mBreakpointWidths.length > 0)
+      selectBreakpoint(widthMeasureSpec);
+
+    // Rebuild the children per column/row when a child moved. Children
+    // appended since the previous pass don't move the others
+    final int childCount = getChildCount();
+    int firstAppended = mFirstAppendedChild;
+    mFirstAppendedChild = NO_CHILD;
+    boolean moved = findRequestedChildren(
+        firstAppended != NO_CHILD ? firstAppended : childCount);
+    if (moved)
+    {
+      mSolver.invalidateIndex();
+      mMeasureAllChildren = true;
+    }
+    else if (firstAppended != NO_CHILD)
+      mSolver.nodesAppended(mNodes, firstAppended);
+
+    // A static grid doesn't need the children to size the grid, they are
+    // measured at their final size afterwards
+    boolean staticGrid = mSolver.isStatic();
+    if (staticGrid)
+      mMeasureCache.countMiss();
+    else
+    {
+      // Reuse the outcome of an earlier pass with the same constraints if no
+      // child changed since. A child that requested a layout is measured
+      // again: its request doesn't change mChildState when we are waiting
+      // for a layout already
+      if (mVirtualized || mSubgrid != SUBGRID_NONE || mMeasureAllChildren
+          || firstAppended != NO_CHILD || !mSolver.isColumnGroupCurrent()
+          || mRequestedCount > 0)
+      {
+        mMeasureCache.clear();
+        mMeasureCache.countMiss();
+      }
+      else
+      {
+        MeasureCache.Entry e = mMeasureCache.get(widthMeasureSpec,
+            heightMeasureSpec, getPaddingLeft(), getPaddingTop(),
+            getPaddingRight(), getPaddingBottom(), mChildState);
+        if (e != null)
+        {
+          restoreMeasure(e);
+          if (metrics != null)
+            metrics.measureCacheHit = true;
+          return;
+        }
+      }
+
+      // Children that did not request a layout keep their preferred size as
+      // long as the children and our constraints didn't change
+      boolean measureAll = mMeasureAllChildren
+          || widthMeasureSpec != mLastWidthMeasureSpec
+          || heightMeasureSpec != mLastHeightMeasureSpec;
+      mMeasureAllChildren = false;
+      mLastWidthMeasureSpec = widthMeasureSpec;
+      mLastHeightMeasureSpec = heightMeasureSpec;
+
+      // First ask the child views to measure and give us their preferred
+      // sizes
+      // TODO: should measure child with margins
+      if (TRACE)
+        Trace.beginSection("HIGLayout#measureChildren");
+      long start = metrics != null ? System.nanoTime() : 0;
+      if (mVirtualized)
+        measureWindowChildren(widthMeasureSpec, heightMeasureSpec,
+            measureAll, firstAppended != NO_CHILD ? firstAppended : childCount);
+      else
+        measureChildren(widthMeasureSpec, heightMeasureSpec, measureAll,
+            firstAppended != NO_CHILD ? firstAppended : childCount);
+      if (metrics != null)
+        metrics.measureChildrenNanos = System.nanoTime() - start;
+      if (TRACE)
+        Trace.endSection();
+    }
 
-    // First ask all child views to measure and give us their preferred sizes
-    // TODO: should measure child with margins
-    measureChildren(widthMeasureSpec, heightMeasureSpec);
+    if (TRACE)
+      Trace.beginSection("HIGLayout#solve");
+
+    // calculate our desired widths of the components without our padding. A
+    // solution computed ahead of time already knows them
+    GridSolution solution = mSolution;
+    if (solution != null && (solution.getSpec() != mSolver.getSpec()
+        || mSubgrid != SUBGRID_NONE))
+      solution = null;
+    int calculatedWidth;
+    int calculatedHeight;
+    if (solution != null)
+    {
+      calculatedWidth = solution.getPreferredWidth();
+      calculatedHeight = solution.getPreferredHeight();
+    }
+    else if (metrics != null)
+    {
+      long start = System.nanoTime();
+      calculatedWidth = mSolver.calcWidths(mNodes);
+      long end = System.nanoTime();
+      metrics.calcWidthsNanos = end - start;
+      calculatedHeight = mSolver.calcHeights(mNodes);
+      metrics.calcHeightsNanos = System.nanoTime() - end;
+    }
+    else
+    {
+      calculatedWidth = mSolver.calcWidths(mNodes);
+      calculatedHeight = mSolver.calcHeights(mNodes);
+    }
+    if (mSubgrid != SUBGRID_NONE)
+      storeSubgridSizes();
 
-    // calculate our desired widths of the components without our padding
-    int calculatedWidth = calcWidths();
-    int calculatedHeight = calcHeights();
+    // members laid out in the same frame add their widths to the group,
+    // the group is solved after it
+    ColumnGroup group = mSolver.getColumnGroup();
+    if (group != null && !group.isSolved())
+      mColumnGroupSolver.solveLater(group);
 
     int cw = calculatedWidth + getPaddingLeft() + getPaddingRight();
     int ch = calculatedHeight + getPaddingTop() + getPaddingBottom();
@@ -368,507 +729,1635 @@ public class HIGLayout extends ViewGroup
         || (heightMode == MeasureSpec.AT_MOST && preferredHeight > imposedHeight))
       preferredHeight = imposedHeight - getPaddingTop() - getPaddingBottom();
 
-    // Scale according the preferredWidth/Height
-    distributeSizeDifference(preferredWidth, mComputedWidths, mWidenWeights,
-        mWidenWeightsSum);
-    distributeSizeDifference(preferredHeight, mComputedHeights,
-        mHeightenWeights, mHeightenWeightsSum);
+    // the tracks the parent adopts are replaced by its tracks, a subgrid
+    // only needs the sizes it calculated for them
+    int adopted = staticGrid ? SUBGRID_NONE : getAdoptedAxes();
+    if (solution != null && solution.getWidth() == preferredWidth
+        && solution.getHeight() == preferredHeight)
+    {
+      mSolver.applySolution(solution);
+    }
+    else
+    {
+      // the solution was computed for other constraints
+      if (solution != null)
+      {
+        mSolver.calcWidths(mNodes);
+        mSolver.calcHeights(mNodes);
+      }
+
+      // Scale according the preferredWidth/Height
+      long start = metrics != null ? System.nanoTime() : 0;
+      if ((adopted & SUBGRID_COLUMNS) == 0)
+        mSolver.distributeWidth(preferredWidth);
+      if ((adopted & SUBGRID_ROWS) == 0)
+        mSolver.distributeHeight(preferredHeight);
+      if (metrics != null)
+        metrics.distributeNanos = System.nanoTime() - start;
+    }
+    mUndistributedAxes = adopted;
+    if (TRACE)
+      Trace.endSection();
 
     // This is the width our view occupies
     int finalWidth = preferredWidth + getPaddingLeft() + getPaddingRight();
     int finalHeight = preferredHeight + getPaddingTop() + getPaddingBottom();
 
+    if (staticGrid)
+      measureChildrenInCells();
+
     setMeasuredDimension(finalWidth, finalHeight);
+    if (!staticGrid && !mVirtualized)
+      storeMeasure(finalWidth, finalHeight);
   }
 
   /**
-   * Draw debug grid. Is only called when "show_debug" property is set to true
+   * Keeps the sizes this subgrid needs in each column/row for the parent.
+   * The padding is added to the first and last column/row.
    */
-  @Override
-  protected void onDraw(Canvas canvas)
+  private void storeSubgridSizes()
   {
-    super.onDraw(canvas);
-
-    if (!mShowGrid)
-      return;
-
-    int height = this.getHeight();
-    int width = this.getWidth();
-    float ht_px = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 1,
-        getResources().getDisplayMetrics());
-    mGridPaint.setStrokeWidth(ht_px);
-
-    int x[] = getColumnsX();
-    for (int i = 0; i < x.length; i++)
-      canvas.drawLine(x[i], 0, x[i], height, mGridPaint);
-
-    int y[] = getRowsY();
-    for (int i = 0; i < y.length; i++)
-      canvas.drawLine(0, y[i], width, y[i], mGridPaint);
+    GridSpec spec = mSolver.getSpec();
+    if (mSubgridWidths.length != spec.colCount)
+      mSubgridWidths = new int[spec.colCount];
+    if (mSubgridHeights.length != spec.rowCount)
+      mSubgridHeights = new int[spec.rowCount];
+
+    // the computed sizes may still be stretched from the previous pass, and
+    // the sizes of fixed columns/rows are only set by distributing
+    mSolver.copyPreferredSizes(mSubgridWidths, mSubgridHeights);
+    if (spec.columnsStatic)
+      System.arraycopy(spec.colWidths, 0, mSubgridWidths, 0, spec.colCount);
+    if (spec.rowsStatic)
+      System.arraycopy(spec.rowHeights, 0, mSubgridHeights, 0, spec.rowCount);
+
+    if (spec.colCount > 0)
+    {
+      mSubgridWidths[0] += getPaddingLeft();
+      mSubgridWidths[spec.colCount - 1] += getPaddingRight();
+    }
+    if (spec.rowCount > 0)
+    {
+      mSubgridHeights[0] += getPaddingTop();
+      mSubgridHeights[spec.rowCount - 1] += getPaddingBottom();
+    }
+  }
 
+  /**
+   * @return the tracks this subgrid will adopt from its parent
+   */
+  private int getAdoptedAxes()
+  {
+    if (mSubgrid == SUBGRID_NONE || !(getParent() instanceof HIGLayout)
+        || !(getLayoutParams() instanceof LayoutParams))
+      return SUBGRID_NONE;
+    return getSubgridAxes(this, (LayoutParams)getLayoutParams());
   }
 
-  @Override
-  protected boolean checkLayoutParams(ViewGroup.LayoutParams p)
+  /**
+   * Distributes the axes the parent was expected to adopt but didn't, e.g.
+   * when it was laid out without remeasuring its children.
+   */
+  private void distributeUndistributed(int width, int height)
   {
-    return p instanceof LayoutParams;
+    if ((mUndistributedAxes & SUBGRID_COLUMNS) != 0)
+      mSolver.distributeWidth(width - getPaddingLeft() - getPaddingRight());
+    if ((mUndistributedAxes & SUBGRID_ROWS) != 0)
+      mSolver.distributeHeight(height - getPaddingTop() - getPaddingBottom());
+    mUndistributedAxes = SUBGRID_NONE;
+    mGeometryVersion++;
   }
 
-  @Override
-  protected LayoutParams generateDefaultLayoutParams()
+  /**
+   * @return the tracks of this layout a child adopts as a subgrid. A
+   *         subgrid must span as many columns/rows as it has itself.
+   */
+  private static int getSubgridAxes(View child, LayoutParams c)
   {
-    return new LayoutParams();
+    if (!(child instanceof HIGLayout) || child.getVisibility() == GONE)
+      return SUBGRID_NONE;
+    HIGLayout subgrid = (HIGLayout)child;
+    int axes = subgrid.mSubgrid;
+    if (axes == SUBGRID_NONE)
+      return SUBGRID_NONE;
+    if (c.w != subgrid.mSubgridWidths.length)
+      axes &= ~SUBGRID_COLUMNS;
+    if (c.h != subgrid.mSubgridHeights.length)
+      axes &= ~SUBGRID_ROWS;
+    return axes;
   }
 
-  @Override
-  public LayoutParams generateLayoutParams(AttributeSet attrs)
+  /**
+   * Takes the column widths and/or row heights from the parent, so this
+   * subgrid does not have to be measured again at its final size.
+   *
+   * @param x
+   *          the column positions of the parent
+   * @param y
+   *          the row positions of the parent
+   * @return false when the size along a track not adopted differs from the
+   *         measured size, the subgrid must then be measured first
+   */
+  private boolean adoptTracks(int axes, int[] x, int col, int[] y, int row,
+      int width, int height)
   {
-    return new LayoutParams(getContext(), attrs);
+    boolean columns = (axes & SUBGRID_COLUMNS) != 0;
+    boolean rows = (axes & SUBGRID_ROWS) != 0;
+    if ((!columns && width != getMeasuredWidth())
+        || (!rows && height != getMeasuredHeight()))
+      return false;
+
+    if (columns)
+    {
+      int count = mSubgridWidths.length;
+      if (mAdoptedWidths.length < count)
+        mAdoptedWidths = new int[count];
+      adoptTracks(x, col, count, getPaddingLeft(), getPaddingRight(),
+          mAdoptedWidths);
+      mSolver.setComputedWidths(mAdoptedWidths);
+    }
+    if (rows)
+    {
+      int count = mSubgridHeights.length;
+      if (mAdoptedHeights.length < count)
+        mAdoptedHeights = new int[count];
+      adoptTracks(y, row, count, getPaddingTop(), getPaddingBottom(),
+          mAdoptedHeights);
+      mSolver.setComputedHeights(mAdoptedHeights);
+    }
+    mUndistributedAxes &= ~axes;
+    mGeometryVersion++;
+    mAdoptedLayoutPending = true;
+    setMeasuredDimension(width, height);
+    return true;
   }
 
-  @Override
-  protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p)
+  /**
+   * Converts the positions of the spanned tracks of the parent to sizes
+   * without padding.
+   */
+  private static void adoptTracks(int[] edges, int start, int count,
+      int paddingStart, int paddingEnd, int[] sizes)
   {
-    return generateDefaultLayoutParams(); // TODO Change this?
+    for (int i = 0; i < count; i++)
+      sizes[i] = edges[start + i + 1] - edges[start + i];
+    sizes[0] = Math.max(0, sizes[0] - paddingStart);
+    sizes[count - 1] = Math.max(0, sizes[count - 1] - paddingEnd);
   }
 
   /**
-   * Converts a string of comma separated integer values to an integer array
-   * 
-   * @param resColWidths
-   * @throws NumberFormatException
-   * @return the converted array
+   * Measures all children at their final size in their cells and stores
+   * their preferred sizes. Used when the grid is static: the column and row
+   * sizes have been computed without the children. Children whose cell did
+   * not change are not measured again by View.measure().
    */
-  private int[] stringToIntArray(String resColWidths)
+  private void measureChildrenInCells()
   {
-    String[] cw = resColWidths.split(",");
-    int[] ia = new int[cw.length];
-    for (int i = 0; i < cw.length; i++)
+    int x[] = mSolver.getColumnsX(getPaddingLeft());
+    int y[] = mSolver.getRowsY(getPaddingTop());
+
+    final int count = getChildCount();
+    mNodes.ensureCapacity(count);
+    if (mVirtualized)
     {
-      ia[i] = Integer.parseInt(cw[i]);
+      updateWindow();
+      int n = findWindowNodes(y);
+      for (int k = 0; k < n; k++)
+        measureChildInFinalCell(mWindowNodes[k], x, y);
+      return;
     }
-    return ia;
+    for (int i = 0; i < count; i++)
+      measureChildInFinalCell(i, x, y);
   }
 
-  public void setColumnWidthsHeights(int widths[], int heights[])
+  private void measureChildInFinalCell(int i, int[] x, int[] y)
   {
-    mColCount = widths.length;
-    mRowCount = heights.length;
-
-    mColWidths = new int[mColCount];
-    System.arraycopy(widths, 0, mColWidths, 0, mColCount);
-    mRowHeights = new int[mRowCount];
-    System.arraycopy(heights, 0, mRowHeights, 0, mRowCount);
-
-    mWidenWeights = new int[mColCount];
-    mHeightenWeights = new int[mRowCount];
+    View child = getChildAt(i);
+    if (child.getVisibility() != GONE)
+    {
+      LayoutParams c = (LayoutParams)child.getLayoutParams();
+      int cellw = x[c.x + (c.w < 0 ? 1 : c.w)] - x[c.x];
+      int cellh = y[c.y + (c.h < 0 ? 1 : c.h)] - y[c.y];
+      measureChildWithSpecs(child, c,
+          getCellMeasureSpec(cellw, c.w, c.width,
+              c.isStretched(LayoutParams.ANCHOR_HORIZONTAL)),
+          getCellMeasureSpec(cellh, c.h, c.height,
+              c.isStretched(LayoutParams.ANCHOR_VERTICAL)));
+    }
+    mNodes.update(i, child);
+  }
 
-    mComputedWidths = new int[mColCount];
-    mComputedHeights = new int[mRowCount];
 
+  /**
+   * Children requesting a layout end up here unless this layout is already
+   * waiting for a layout. Passes cached before can no longer be used.
+   */
+  @Override
+  public void requestLayout()
+  {
+    mChildState++;
+    if (!mRequestingOwnLayout)
+      mCheckChildren = true;
+    super.requestLayout();
   }
 
   /**
-   *
-   * @since 0.97
+   * A child asks this before it requests a layout from us. When we are
+   * waiting for a layout already its request stops here, so the next pass
+   * has to look for it.
    */
-  private Object reallocArray(Object src, int newSize)
+  @Override
+  public boolean isLayoutRequested()
   {
-    Object dest = java.lang.reflect.Array.newInstance(src.getClass()
-        .getComponentType(), newSize);
-    System.arraycopy(src, 0, dest, 0, java.lang.reflect.Array.getLength(src));
-    return dest;
+    boolean requested = super.isLayoutRequested();
+    if (requested)
+      mCheckChildren = true;
+    return requested;
   }
 
   /**
-   * Sets column width, realloc arrays if there is need.
-   * 
-   * @since 0.97
+   * Stores the solved grid and the preferred sizes of the children of the
+   * current measure pass in the measure cache.
    */
-  public void setColumnWidth(int col, int width)
+  private void storeMeasure(int measuredWidth, int measuredHeight)
   {
-    if (mColCount < col)
-    {
-      mColCount = col;
-    }
-    if (mColWidths.length <= col)
-    {
-      mColWidths = (int[])reallocArray(mColWidths, mColCount);
-      mWidenWeights = (int[])reallocArray(mWidenWeights, mColCount);
-      mComputedWidths = (int[])reallocArray(mComputedWidths, mColCount + 1);
-    }
-    mColWidths[col] = width;
+    MeasureCache.Entry e = mMeasureCache.put(mLastWidthMeasureSpec,
+        mLastHeightMeasureSpec, getPaddingLeft(), getPaddingTop(),
+        getPaddingRight(), getPaddingBottom(), mChildState);
+    final int count = getChildCount();
+    e.ensureCapacity(mSolver.getColumnCount(), mSolver.getRowCount(), count);
+    e.measuredWidth = measuredWidth;
+    e.measuredHeight = measuredHeight;
+    mSolver.copyComputedSizes(e.widths, e.heights);
+    System.arraycopy(mNodes.mWidths, 0, e.nodeWidths, 0, count);
+    System.arraycopy(mNodes.mHeights, 0, e.nodeHeights, 0, count);
   }
 
   /**
-   * Sets row height, realloc arrays if there is need.
-   * 
-   * @since 0.97
+   * Restores a measure pass from the measure cache.
    */
-  public void setRowHeight(int row, int height)
+  private void restoreMeasure(MeasureCache.Entry e)
   {
-    if (mRowCount < row)
-    {
-      mRowCount = row;
-    }
-    if (mRowHeights.length <= row)
+    final int count = getChildCount();
+    mSolver.setComputedSizes(e.widths, e.heights);
+    System.arraycopy(e.nodeWidths, 0, mNodes.mWidths, 0, count);
+    System.arraycopy(e.nodeHeights, 0, mNodes.mHeights, 0, count);
+
+    // the tracks the solver keeps for incremental passes belong to other
+    // constraints
+    if (e.widthMeasureSpec != mLastWidthMeasureSpec
+        || e.heightMeasureSpec != mLastHeightMeasureSpec)
     {
-      mRowHeights = (int[])reallocArray(mRowHeights, mRowCount);
-      mHeightenWeights = (int[])reallocArray(mHeightenWeights, mRowCount);
-      mComputedHeights = (int[])reallocArray(mComputedHeights, mRowCount + 1);
+      mSolver.invalidateTracks();
+      mLastWidthMeasureSpec = e.widthMeasureSpec;
+      mLastHeightMeasureSpec = e.heightMeasureSpec;
     }
-    mRowHeights[row] = height;
+
+    setMeasuredDimension(e.measuredWidth, e.measuredHeight);
   }
 
   /**
-   * Sets weight of specified column. Weight determines distribution of
-   * difference when resizing.
-   * 
-   * @param col
-   *          index of column. Index must be > 0.
+   * @return the number of children remeasured at their final size in
+   *         onLayout()
    */
-  public void setColumnWeight(int col, int weight)
+  public int getLayoutRemeasures()
   {
-    if (col >= mColCount)
-    {
-      throw new RuntimeException("Column index cannot be greater then "
-          + mColCount + ".");
-    }
-    mWidenWeights[col] = weight;
-    mWidenWeightsSum = 0;
-    for (int i = 0; i < mColCount; i++)
-      mWidenWeightsSum += mWidenWeights[i];
+    return mLayoutRemeasures;
   }
 
   /**
-   * Sets weight of specified row. Weight determines distribution of difference
-   * when resizing.
-   * 
-   * @param row
-   *          index of row. Index must be > 0.
+   * @return the number of times onLayout() did not have to remeasure a child
+   *         because it was already measured at its final size
    */
-  public void setRowWeight(int row, int weight)
+  public int getLayoutRemeasuresAvoided()
   {
-    if (row >= mRowCount)
-    {
-      throw new RuntimeException("Column index cannot be greater then "
-          + mRowCount + ".");
-    }
-    mHeightenWeights[row] = weight;
-    mHeightenWeightsSum = 0;
-    for (int i = 0; i < mRowCount; i++)
-      mHeightenWeightsSum += mHeightenWeights[i];
+    return mLayoutRemeasuresAvoided;
   }
 
   /**
-   * Calculate the absolute positions of each column by adding column widths
-   * 
-   * @return
+   * Makes this layout use the columns and/or rows of the parent HIGLayout
+   * it spans instead of solving its own. Its children then size the tracks
+   * of the parent as if they were placed in the parent directly, so nested
+   * grids are solved once at the top and line up with the outer grid.
+   *
+   * The subgrid must span as many columns/rows of the parent as it has
+   * itself, otherwise it is laid out as a normal nested grid. Fixed
+   * columns/rows of the subgrid still count as the size the subgrid needs,
+   * its weights are not used.
+   *
+   * @param axes
+   *          SUBGRID_NONE, SUBGRID_COLUMNS, SUBGRID_ROWS or SUBGRID_BOTH
    */
-  private int[] getColumnsX()
+  public void setSubgrid(int axes)
   {
-    if (cacheColumnsX != null)
-      return cacheColumnsX;
-
-    int x[] = new int[mColCount + 1]; // add 1 left for padding left
-    x[0] = this.getPaddingLeft();
-
-    for (int i = 1; i <= mColCount; i++)
-      x[i] = x[i - 1] + mComputedWidths[i - 1];
-
-    cacheColumnsX = x;
-    return x;
+    if (mSubgrid == axes)
+      return;
+    mSubgrid = axes;
+    mMeasureCache.clear();
+    requestLayout();
   }
 
   /**
-   * Calculate the absolute positions of each row by adding row heights
-   * 
-   * @return
+   * @return the tracks taken from the parent, see setSubgrid()
    */
-  private int[] getRowsY()
+  public int getSubgrid()
   {
-    if (cacheRowsY != null)
-      return cacheRowsY;
-    int y[] = new int[mRowCount + 1];
-    y[0] = this.getPaddingTop();
-
-    for (int i = 1; i <= mRowCount; i++)
-      y[i] = y[i - 1] + mComputedHeights[i - 1];
+    return mSubgrid;
+  }
 
-    cacheRowsY = y;
-    return y;
+  /**
+   * Reports the cost of every measure and layout pass. Measuring and laying
+   * out are not timed at all while no listener is set.
+   *
+   * @param listener
+   *          null to stop reporting
+   */
+  public void setOnLayoutMetricsListener(OnLayoutMetricsListener listener)
+  {
+    mMetricsListener = listener;
+    if (listener == null)
+      mMetrics = null;
+    else if (mMetrics == null)
+      mMetrics = new LayoutMetrics();
   }
 
   /**
-   * Calculate any references to other columns/rows in the list. The purpose
-   * is to make sure that all paths and cycles share the same width/height. 
-   * @param g
-   * @param lengths
+   * @return the number of measure passes answered from the measure cache
    */
-  private void solveCycles(int g[], int lengths[])
+  public int getMeasureCacheHits()
   {
-    /* TODO: handle cycles of length 1*/
-    int path[] = new int[g.length];
-    int stackptr = 0;
+    return mMeasureCache.getHits();
+  }
 
-    /* marks of visited vertices. 0 - not visited, 1 - visited, 2 - visited and set final value */
-    byte visited[] = new byte[g.length];
-    for (int i = g.length - 1; i >= 0; i--)
-    {
-      if ((g[i] < 0) && (visited[i] == 0))
+  /**
+   * @return the number of measure passes that had to be computed, including
+   *         those that could not use the cache at all
+   */
+  public int getMeasureCacheMisses()
+  {
+    return mMeasureCache.getMisses();
+  }
+
+  /**
+   * Draw debug grid. Is only called when "show_debug" property is set to true
+   */
+  @Override
+  protected void onDraw(Canvas canvas)
+  {
+    super.onDraw(canvas);
+
+    if (!mShowGrid)
+      return;
+
+    int height = this.getHeight();
+    int width = this.getWidth();
+    float ht_px = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 1,
+        getResources().getDisplayMetrics());
+    mGridPaint.setStrokeWidth(ht_px);
+
+    int x[] = mSolver.getColumnsX(getPaddingLeft());
+    for (int i = 0; i <= mSolver.getColumnCount(); i++)
+      canvas.drawLine(x[i], 0, x[i], height, mGridPaint);
+
+    int y[] = mSolver.getRowsY(getPaddingTop());
+    for (int i = 0; i <= mSolver.getRowCount(); i++)
+      canvas.drawLine(0, y[i], width, y[i], mGridPaint);
+
+  }
+
+  /**
+   * Measures the children and stores their preferred sizes. When not all
+   * children have to be measured only the children found by
+   * findRequestedChildren() and the appended ones are measured and the
+   * solver is told which columns/rows changed.
+   */
+  private void measureChildren(int widthMeasureSpec, int heightMeasureSpec,
+      boolean measureAll, int firstAppended)
+  {
+    final int count = getChildCount();
+    mNodes.ensureCapacity(count);
+    if (measureAll)
+    {
+      for (int i = 0; i < count; i++)
+        measureChild(i, widthMeasureSpec, heightMeasureSpec, false);
+      mSolver.invalidateTracks();
+      return;
+    }
+    for (int k = 0; k < mRequestedCount; k++)
+      measureChild(mRequestedChildren[k], widthMeasureSpec,
+          heightMeasureSpec, true);
+    for (int i = firstAppended; i < count; i++)
+      measureChild(i, widthMeasureSpec, heightMeasureSpec, true);
+  }
+
+  private void measureChild(int i, int widthMeasureSpec,
+      int heightMeasureSpec, boolean invalidate)
+  {
+    View child = getChildAt(i);
+    if (child.getVisibility() != GONE)
+      measureChildInCell(child, widthMeasureSpec, heightMeasureSpec);
+    if (mNodes.update(i, child) && invalidate)
+      mSolver.invalidateNode(mNodes, i);
+  }
+
+  /**
+   * Measures the children in the window in virtualized mode. Measuring
+   * changes the row heights and with them the rows in the window, so this
+   * is repeated until no unmeasured child moved into the window. The other
+   * children keep their preferred size or, when they were never measured,
+   * get the estimated height.
+   */
+  private void measureWindowChildren(int widthMeasureSpec,
+      int heightMeasureSpec, boolean measureAll, int firstAppended)
+  {
+    final int count = getChildCount();
+    mNodes.ensureCapacity(count);
+    int pass = ++mMeasurePass;
+    if (measureAll)
+    {
+      mMeasureAllPass = pass;
+      firstAppended = 0;
+      mSolver.invalidateTracks();
+    }
+    for (int i = firstAppended; i < count; i++)
+      mNodes.estimate(i, getChildAt(i), mEstimatedChildHeight);
+
+    updateWindow();
+    for (int round = 0; round < MAX_WINDOW_ROUNDS; round++)
+    {
+      mSolver.calcHeights(mNodes);
+      int[] y = mSolver.getRowsY(getPaddingTop());
+      int n = findWindowNodes(y);
+      int measured = 0;
+      for (int k = 0; k < n; k++)
       {
-        int current = i;
+        int i = mWindowNodes[k];
+        View child = getChildAt(i);
+        int childPass = mNodes.getMeasurePass(i);
+        if (childPass == pass
+            || (childPass >= mMeasureAllPass && !child.isLayoutRequested()))
+          continue;
+
+        if (child.getVisibility() != GONE)
+          measureChildInCell(child, widthMeasureSpec, heightMeasureSpec);
+        mNodes.setMeasurePass(i, pass);
+        if (mNodes.update(i, child))
+          mSolver.invalidateNode(mNodes, i);
+        measured++;
+      }
+      if (measured == 0)
+        break;
+    }
+  }
 
-        if (-g[i] > g.length - 1)
-          throw new RuntimeException(
-              "Column or Row referencing non existing column or row");
+  /**
+   * Finds the part of the layout that is visible, widened by the prefetch
+   * margin.
+   */
+  private void updateWindow()
+  {
+    int top;
+    int bottom;
+    if (getLocalVisibleRect(mVisibleRect))
+    {
+      top = mVisibleRect.top;
+      bottom = mVisibleRect.bottom;
+    }
+    else
+    {
+      // not shown yet, assume the top of the layout will be
+      top = 0;
+      bottom = getResources().getDisplayMetrics().heightPixels;
+    }
+    mWindowTop = top - mPrefetchMargin;
+    mWindowBottom = bottom + mPrefetchMargin;
+  }
 
-        /* find cycle or path with cycle */
-        stackptr = 0;
-        int maxLength = 0;
-        int last;
-        do
-        {
-          maxLength = (lengths[current] > maxLength) ? lengths[current]
-              : maxLength;
-          path[stackptr++] = current;
-          visited[current] = 1;
-          last = current;
-          current = -g[current];
-        } while ((current > 0) && (visited[current] == 0));
-
-        if (current <= 0)
-        {
-          /* there is no cycle, only end of path */
-          maxLength = lengths[last];
-        }
-        else if (current == 0)
-        {
-          maxLength = lengths[last];
-        }
-        else if (visited[current] == 1)
-        {
-          /* cycle, max. cannot lie outside the cycle, find it */
-          int start = current;
-          maxLength = 0;
-          do
-          {
-            maxLength = (lengths[current] > maxLength) ? lengths[current]
-                : maxLength;
-            current = -g[current];
-          } while (start != current);
-        }
-        else if (visited[current] == 2)
-        {
-          /* this vertice already has final value */
-          maxLength = lengths[current];
-        }
-        else
+  /**
+   * Collects the children whose rows intersect the window in mWindowNodes.
+   * Finds the rows by binary search, so the cost depends on the number of
+   * rows in the window and not on the number of rows of the grid.
+   *
+   * @return the number of children found
+   */
+  private int findWindowNodes(int[] y)
+  {
+    GridIndex index = mSolver.getIndex(mNodes);
+    int rowCount = mSolver.getRowCount();
+    if (rowCount == 0)
+      return 0;
+    int firstRow = GridSolver.findTrack(y, rowCount, mWindowTop);
+    int lastRow = GridSolver.findTrack(y, rowCount, mWindowBottom);
+
+    int n = 0;
+    // children spanning rows may start above the window
+    int[] start = index.cellRowStart;
+    int firstStartRow = Math.max(0, firstRow - index.maxSpanY + 1);
+    for (int row = firstStartRow; row <= lastRow; row++)
+    {
+      for (int k = start[row]; k < start[row + 1]; k++)
+      {
+        int i = index.cellRowNodes[k];
+        if (row + mNodes.getSpanY(i) <= firstRow)
+          continue;
+        if (n == mWindowNodes.length)
         {
-          throw new RuntimeException("This should not happen.");
+          int[] nodes = new int[Math.max(16, n * 2)];
+          System.arraycopy(mWindowNodes, 0, nodes, 0, n);
+          mWindowNodes = nodes;
         }
-        while (stackptr > 0)
+        mWindowNodes[n++] = i;
+      }
+    }
+    return n;
+  }
+
+
+  /**
+   * Measures a child. Along an axis where the child's cell only covers fixed
+   * size columns/rows the child is measured against its cell, at exactly the
+   * cell size when it is anchored to both sides. It is then already measured
+   * at its final size and onLayout() doesn't have to measure it again. Along
+   * other axes the child is measured against our own constraints.
+   */
+  private void measureChildInCell(View child, int widthMeasureSpec,
+      int heightMeasureSpec)
+  {
+    LayoutParams c = (LayoutParams)child.getLayoutParams();
+
+    int childWidthMeasureSpec;
+    int cellWidth = mSolver.getFixedColumnsWidth(c.x, c.w < 0 ? 1 : c.w);
+    if (cellWidth < 0)
+      childWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec,
+          getPaddingLeft() + getPaddingRight(), c.width);
+    else
+      childWidthMeasureSpec = getCellMeasureSpec(cellWidth, c.w, c.width,
+          c.isStretched(LayoutParams.ANCHOR_HORIZONTAL));
+
+    int childHeightMeasureSpec;
+    int cellHeight = mSolver.getFixedRowsHeight(c.y, c.h < 0 ? 1 : c.h);
+    if (cellHeight < 0)
+      childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
+          getPaddingTop() + getPaddingBottom(), c.height);
+    else
+      childHeightMeasureSpec = getCellMeasureSpec(cellHeight, c.h, c.height,
+          c.isStretched(LayoutParams.ANCHOR_VERTICAL));
+
+    measureChildWithSpecs(child, c, childWidthMeasureSpec,
+        childHeightMeasureSpec);
+  }
+
+  /**
+   * Measures a child and remembers the specs, onLayout() only measures it
+   * again when its final specs differ.
+   */
+  private static void measureChildWithSpecs(View child, LayoutParams c,
+      int widthMeasureSpec, int heightMeasureSpec)
+  {
+    child.measure(widthMeasureSpec, heightMeasureSpec);
+    c.mWidthMeasureSpec = widthMeasureSpec;
+    c.mHeightMeasureSpec = heightMeasureSpec;
+  }
+
+  /**
+   * @param cellSize
+   *          size of the cell
+   * @param span
+   *          span of the child, negative for a fixed size
+   * @param childDimension
+   *          the layout_width/layout_height of the child
+   * @param stretched
+   *          true when the child is anchored to both sides of the cell
+   * @return the measure spec to measure the child in its cell with
+   */
+  private static int getCellMeasureSpec(int cellSize, int span,
+      int childDimension, boolean stretched)
+  {
+    if (stretched)
+      return MeasureSpec.makeMeasureSpec(cellSize, MeasureSpec.EXACTLY);
+    if (span < 0)
+      return MeasureSpec.makeMeasureSpec(-span, MeasureSpec.EXACTLY);
+    return getChildMeasureSpec(
+        MeasureSpec.makeMeasureSpec(cellSize, MeasureSpec.AT_MOST), 0,
+        childDimension);
+  }
+
+  @Override
+  public void setOnHierarchyChangeListener(OnHierarchyChangeListener listener)
+  {
+    // the user's listener is called by the pass through listener
+    mPassThroughListener.mOnHierarchyChangeListener = listener;
+  }
+
+  /**
+   * Collects the children that requested a layout in mRequestedChildren and
+   * remembers the cell and span each of them and each appended child is
+   * indexed with. Layout params changed after the child was added only take
+   * effect with a layout request of the child, like setLayoutParams()
+   * makes. The children are only looked at when one of them may have
+   * requested a layout since the previous pass, all of them are compared
+   * when all are measured anyway. A layout request doesn't tell which child
+   * made it, so this then checks the flag of every child: linear in the
+   * number of children, but only the children found are measured.
+   *
+   * @param firstAppended
+   *          the first child appended since the previous pass. These are
+   *          always compared but don't count as moved.
+   * @return true when a child before firstAppended moved
+   */
+  private boolean findRequestedChildren(int firstAppended)
+  {
+    boolean all = mMeasureAllChildren;
+    boolean moved = false;
+    mRequestedCount = 0;
+    if (all || mCheckChildren)
+    {
+      if (mRequestedChildren.length < firstAppended)
+        mRequestedChildren = new int[Math.max(firstAppended,
+            mRequestedChildren.length * 2)];
+      for (int i = 0; i < firstAppended; i++)
+      {
+        View child = getChildAt(i);
+        if (!all)
         {
-          lengths[path[--stackptr]] = maxLength;
-          visited[path[stackptr]] = 2;
+          if (!child.isLayoutRequested())
+            continue;
+          mRequestedChildren[mRequestedCount++] = i;
         }
+        if (((LayoutParams)child.getLayoutParams()).updateIndexedCell())
+          moved = true;
       }
     }
+    mCheckChildren = false;
+
+    final int count = getChildCount();
+    for (int i = firstAppended; i < count; i++)
+      ((LayoutParams)getChildAt(i).getLayoutParams()).updateIndexedCell();
+    return moved;
+  }
+
+  @Override
+  protected boolean checkLayoutParams(ViewGroup.LayoutParams p)
+  {
+    if (!(p instanceof LayoutParams))
+      return false;
+    // compile an anchor assigned to the public field now, so a wrong one
+    // throws when the child is added instead of during layout
+    ((LayoutParams)p).getAnchorFlags();
+    return true;
+  }
+
+  @Override
+  protected LayoutParams generateDefaultLayoutParams()
+  {
+    return new LayoutParams();
+  }
+
+  @Override
+  public LayoutParams generateLayoutParams(AttributeSet attrs)
+  {
+    return new LayoutParams(getContext(), attrs);
+  }
+
+  @Override
+  protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p)
+  {
+    return generateDefaultLayoutParams(); // TODO Change this?
+  }
+
+  /**
+   * Lines up the columns with those of other layouts, e.g. the rows of a
+   * list. All layouts in the group must have the same number of columns.
+   * The widths are solved from the layouts laid out in the first frame,
+   * layouts bound later take them without solving their columns. Call
+   * ColumnGroup.reset() when the data shown by the rows changes.
+   *
+   * @param group
+   *          the group to join or null to leave the current group
+   */
+  public void setColumnGroup(ColumnGroup group)
+  {
+    ColumnGroup old = mSolver.getColumnGroup();
+    if (old == group)
+      return;
+    mSolver.setColumnGroup(group);
+    if (old != null)
+      old.removeListener(mColumnGroupListener);
+    if (group != null)
+      group.addListener(mColumnGroupListener);
+    mMeasureCache.clear();
+    requestLayout();
+  }
+
+  public ColumnGroup getColumnGroup()
+  {
+    return mSolver.getColumnGroup();
+  }
+
+  /**
+   * Uses a solution computed ahead of time, e.g. on a background thread
+   * while a list item is prepared, instead of solving the grid in
+   * onMeasure(). The solution is used as long as it is set, it is ignored
+   * when the columns/rows have changed since or when the layout is measured
+   * at a different size than the solution was computed for.
+   *
+   * @param solution
+   *          computed with GridSolution.compute() for getSpec(), or null
+   */
+  public void setPrecomputedSolution(GridSolution solution)
+  {
+    mSolution = solution;
+    mMeasureCache.clear();
+    requestLayout();
+  }
+
+  /**
+   * @return the columns, rows and weights of the grid. Pass it to
+   *         GridSolution.compute() to solve the grid ahead of time.
+   */
+  public GridSpec getSpec()
+  {
+    return mSolver.getSpec();
+  }
+
+  /**
+   * Animates the columns and rows to a new spec, e.g. with other weights or
+   * sizes. The new spec is solved once, then every frame only interpolates
+   * the column widths and row heights and moves the children. Children are
+   * not measured and nothing is allocated while animating.
+   *
+   * When the number of columns or rows changes the spec is applied without
+   * animation.
+   *
+   * @param spec
+   *          the columns, rows and weights to animate to
+   * @param duration
+   *          in milliseconds
+   * @param interpolator
+   *          may be null for accelerate/decelerate
+   * @param remeasureAtEnd
+   *          measure and lay out the children at their final size when the
+   *          animation ends. Needed when children stretch with a track.
+   */
+  public void animateSpec(GridSpec spec, long duration,
+      Interpolator interpolator, boolean remeasureAtEnd)
+  {
+    GridSpec current = mSolver.getSpec();
+    if (spec.colCount != current.colCount
+        || spec.rowCount != current.rowCount || duration <= 0)
+    {
+      mTrackAnimator.cancel();
+      setSpec(spec);
+      return;
+    }
+    mTrackAnimator.prepare(duration, interpolator, remeasureAtEnd);
+    setSpec(spec);
+  }
+
+  /**
+   * @return true while the columns/rows animate
+   */
+  public boolean isAnimatingTracks()
+  {
+    return mTrackAnimator.mPending || mTrackAnimator.mRunning;
+  }
+
+  /**
+   * Returns a snapshot of the column/row edges and the cells of the children
+   * as solved by the last measure pass or animation frame, e.g. to find the
+   * cell or child under a touch. A new snapshot is only created after the
+   * columns/rows changed. Positions are relative to this layout, nodes are
+   * child indexes.
+   */
+  public GridGeometry getGeometry()
+  {
+    if (mGeometry == null || mGeometry.getVersion() != mGeometryVersion)
+      mGeometry = mSolver.createGeometry(mNodes, getPaddingLeft(),
+          getPaddingTop(), mGeometryVersion);
+    return mGeometry;
+  }
+
+  /**
+   * @return the version of the geometry returned by getGeometry(), changes
+   *         on every measure pass and every frame of a track animation
+   */
+  public int getGeometryVersion()
+  {
+    return mGeometryVersion;
+  }
+
+  /**
+   * Turns virtualized mode on or off. In virtualized mode only the children
+   * in the visible part of the layout plus a prefetch margin are measured
+   * and laid out, which makes large grids in a ScrollView cheap to lay out
+   * and scroll. Children that were never measured count with an estimated
+   * height and the current width of their columns. The layout lays out
+   * again when scrolling gets close to the edge of the prefetched children.
+   */
+  public void setVirtualized(boolean virtualized)
+  {
+    if (virtualized == mVirtualized)
+      return;
+    mVirtualized = virtualized;
+    DisplayMetrics metrics = getResources().getDisplayMetrics();
+    if (mPrefetchMargin < 0)
+      mPrefetchMargin = metrics.heightPixels / 2;
+    if (mEstimatedChildHeight < 0)
+      mEstimatedChildHeight = (int)TypedValue.applyDimension(
+          TypedValue.COMPLEX_UNIT_DIP, DEFAULT_ESTIMATED_HEIGHT_DP, metrics);
+    mMeasureCache.clear();
+    mMeasureAllChildren = true;
+    mLaidOutChildCount = -1;
+    if (getWindowToken() != null)
+      updateViewportListener();
+    requestLayout();
+  }
+
+  public boolean isVirtualized()
+  {
+    return mVirtualized;
+  }
+
+  /**
+   * Sets how far beyond the visible part of the layout children are
+   * measured and laid out in virtualized mode. Defaults to half the screen
+   * height.
+   */
+  public void setPrefetchMargin(int margin)
+  {
+    mPrefetchMargin = margin;
+    if (mVirtualized)
+      requestLayout();
+  }
+
+  /**
+   * Sets the height used in virtualized mode for children that were never
+   * measured. Defaults to 48dp.
+   */
+  public void setEstimatedChildHeight(int height)
+  {
+    mEstimatedChildHeight = height;
+  }
+
+  @Override
+  protected void onAttachedToWindow()
+  {
+    super.onAttachedToWindow();
+    updateViewportListener();
+  }
+
+  @Override
+  protected void onDetachedFromWindow()
+  {
+    if (mViewportListenerAdded)
+    {
+      getViewTreeObserver().removeOnScrollChangedListener(mViewportListener);
+      mViewportListenerAdded = false;
+    }
+    mTrackAnimator.cancel();
+    super.onDetachedFromWindow();
+  }
+
+  /**
+   * Listens to scrolling only in virtualized mode, other layouts don't
+   * depend on the visible part.
+   */
+  private void updateViewportListener()
+  {
+    if (mVirtualized == mViewportListenerAdded)
+      return;
+    if (mVirtualized)
+      getViewTreeObserver().addOnScrollChangedListener(mViewportListener);
+    else
+      getViewTreeObserver().removeOnScrollChangedListener(mViewportListener);
+    mViewportListenerAdded = mVirtualized;
+  }
+
+  /**
+   * Appends a row below the last one. Unlike setRowHeight() and setSpec()
+   * this takes amortized constant time and keeps the solved rows: children
+   * added to the end of the layout afterwards are the only ones measured
+   * and only the new rows are solved, the rows above keep their heights and
+   * positions.
+   *
+   * @return the index of the new row
+   */
+  public int appendRow(int height, int weight)
+  {
+    int row = mSolver.appendRow(height, weight);
+    mMeasureCache.clear();
+    requestLayout();
+    return row;
+  }
+
+  /**
+   * Replaces the columns, rows and weights at once. Use a GridSpec.Builder,
+   * e.g. from getSpec().buildUpon(), to change many columns/rows: every
+   * single column/row setter below copies the spec.
+   */
+  public void setSpec(GridSpec spec)
+  {
+    mSolver.setSpec(spec);
+    onSpecChanged();
+  }
+
+  /**
+   * Uses other columns and rows depending on the width available to the
+   * layout, e.g. on tablets or in split screen. Each breakpoint has a spec
+   * that is used from its minimum width up to the next breakpoint, below the
+   * first breakpoint the spec of the layout itself is used. Children move
+   * to their cell for the breakpoint, see LayoutParams.setBreakpointCell().
+   *
+   * The breakpoint is picked in onMeasure() from the width imposed by the
+   * parent. Switching keeps the children, it only solves the grid again.
+   * Changes to the columns/rows made in code apply to the spec in use and
+   * are lost when switching to another breakpoint.
+   *
+   * @param minWidths
+   *          the minimum width of each breakpoint in pixels, ascending
+   * @param specs
+   *          the columns and rows of each breakpoint
+   * @throws IllegalArgumentException
+   *           when the arrays have different lengths or the widths are not
+   *           ascending
+   */
+  public void setBreakpoints(int[] minWidths, GridSpec[] specs)
+  {
+    if (minWidths.length != specs.length)
+      throw new IllegalArgumentException(
+          "Breakpoint widths must match number of specs");
+    for (int i = 1; i < minWidths.length; i++)
+    {
+      if (minWidths[i] <= minWidths[i - 1])
+        throw new IllegalArgumentException(
+            "Breakpoint widths must be ascending");
+    }
+
+    // back to the base spec, onMeasure() picks the breakpoint again
+    if (mActiveBreakpoint != NO_BREAKPOINT)
+      applyBreakpoint(NO_BREAKPOINT);
+    mBreakpointWidths = minWidths.clone();
+    mBreakpointSpecs = specs.clone();
+    onSpecChanged();
+  }
+
+  /**
+   * @return the breakpoint in use or NO_BREAKPOINT
+   */
+  public int getActiveBreakpoint()
+  {
+    return mActiveBreakpoint;
+  }
+
+  /**
+   * Picks the breakpoint for the width imposed by the parent. Without a
+   * width (UNSPECIFIED) the base spec is used.
+   */
+  private void selectBreakpoint(int widthMeasureSpec)
+  {
+    int breakpoint = NO_BREAKPOINT;
+    if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED)
+    {
+      int width = MeasureSpec.getSize(widthMeasureSpec);
+      while (breakpoint + 1 < mBreakpointWidths.length
+          && mBreakpointWidths[breakpoint + 1] <= width)
+        breakpoint++;
+    }
+    if (breakpoint != mActiveBreakpoint)
+      applyBreakpoint(breakpoint);
   }
 
   /**
-   * Calculate the widths of each column by finding the maximum width of all
-   * components in that column
+   * Switches to the spec of a breakpoint and moves the children to their
+   * cells for it.
    */
-  private int calcWidths()
+  private void applyBreakpoint(int breakpoint)
   {
-    // finds max with for
-    int[] widths = new int[mColCount];
-    int totalWidth = 0;
-    ArrayList<View>[] colComponents;
+    if (mActiveBreakpoint == NO_BREAKPOINT)
+      mBaseSpec = mSolver.getSpec();
+    mActiveBreakpoint = breakpoint;
+    mTrackAnimator.cancel();
+    mSolver.setSpec(breakpoint == NO_BREAKPOINT ? mBaseSpec
+        : mBreakpointSpecs[breakpoint]);
+
+    final int count = getChildCount();
+    for (int i = 0; i < count; i++)
+      ((LayoutParams)getChildAt(i).getLayoutParams())
+          .applyBreakpoint(breakpoint);
 
-    colComponents = getViewsInColumns();
-    for (int i = 0; i < mColCount; i++)
+    mMeasureCache.clear();
+    mMeasureAllChildren = true;
+  }
+
+  /**
+   * Parses the breakpoints attribute: breakpoints separated by '|', each
+   * holding its minimum width, column widths, row heights and optionally
+   * the column and row weights separated by ';', e.g.
+   * "600;0,10,0;0,0;0,0,1|900;0,10,0,10,0;0,0".
+   *
+   * @throws IllegalArgumentException
+   *           when the attribute contains an illegal value
+   */
+  private void parseBreakpoints(String attribute)
+  {
+    String[] breakpoints = attribute.split("\\|");
+    int[] minWidths = new int[breakpoints.length];
+    GridSpec[] specs = new GridSpec[breakpoints.length];
+    for (int i = 0; i < breakpoints.length; i++)
     {
-      if (mColWidths[i] > 0) // use specified fixed width
+      String[] parts = breakpoints[i].trim().split(";", -1);
+      if (parts.length < 3 || parts.length > 5)
+        throw new IllegalArgumentException(
+            "Illegal value in breakpoints attribute.");
+      try
       {
-        widths[i] = mColWidths[i];
+        minWidths[i] = Integer.parseInt(parts[0].trim());
       }
-      else
-      // has not been calculated
+      catch (NumberFormatException nfe)
       {
-        int maxWidth = 0;
-        ArrayList<View> iComps = colComponents[i];
-        if (iComps != null)
-        {
-          for (int j = iComps.size() - 1; j >= 0; j--)
-          {
-            View childView = iComps.get(j);
-            int width = childView.getVisibility() != View.GONE ? childView
-                .getMeasuredWidth() : WIDTH_ZERO;
-            LayoutParams params = (LayoutParams)childView.getLayoutParams();
-            if (params.w < 0)
-              width = -params.w;
-            maxWidth = (width > maxWidth) ? width : maxWidth;
-          }
-        }
-        widths[i] = maxWidth;
+        throw new IllegalArgumentException(
+            "Illegal value in breakpoints attribute.", nfe);
       }
+      specs[i] = GridSpec.obtain(parts[1], parts[2],
+          parts.length > 3 && parts[3].length() > 0 ? parts[3] : null,
+          parts.length > 4 && parts[4].length() > 0 ? parts[4] : null);
     }
-    solveCycles(mColWidths, widths);
+    setBreakpoints(minWidths, specs);
+  }
+
+  /**
+   * Discards everything solved for the previous columns/rows and lays out
+   * again.
+   */
+  private void onSpecChanged()
+  {
+    mMeasureCache.clear();
+    mMeasureAllChildren = true;
+    requestLayout();
+  }
+
+  public void setColumnWidthsHeights(int widths[], int heights[])
+  {
+    mSolver.setColumnWidthsHeights(widths, heights);
+    onSpecChanged();
+  }
+
+  /**
+   * Sets column width, the grid grows if col is beyond the last column. Each
+   * call copies the spec and lays out all children again, use setSpec() with
+   * a GridSpec.Builder to change many columns at once.
+   * 
+   * @since 0.97
+   */
+  public void setColumnWidth(int col, int width)
+  {
+    mSolver.setColumnWidth(col, width);
+    onSpecChanged();
+  }
+
+  /**
+   * Sets row height, the grid grows if row is beyond the last row. Each call
+   * copies the spec and lays out all children again, use setSpec() with a
+   * GridSpec.Builder to change many rows at once or appendRow() to add rows
+   * one by one.
+   * 
+   * @since 0.97
+   */
+  public void setRowHeight(int row, int height)
+  {
+    mSolver.setRowHeight(row, height);
+    onSpecChanged();
+  }
+
+  /**
+   * Sets weight of specified column. Weight determines distribution of
+   * difference when resizing.
+   * 
+   * @param col
+   *          index of column. Index must be > 0.
+   */
+  public void setColumnWeight(int col, int weight)
+  {
+    mSolver.setColumnWeight(col, weight);
+    onSpecChanged();
+  }
 
-    mComputedWidths = widths;
-    for (int w : mComputedWidths)
-      totalWidth += w;
+  /**
+   * Sets weight of specified row. Weight determines distribution of difference
+   * when resizing.
+   * 
+   * @param row
+   *          index of row. Index must be > 0.
+   */
+  public void setRowWeight(int row, int weight)
+  {
+    mSolver.setRowWeight(row, weight);
+    onSpecChanged();
+  }
 
-    return totalWidth;
+  /**
+   * Sets the minimum and maximum width of a column. The column stays within
+   * them, both when sized by its children and when stretched by its weight.
+   *
+   * @param minWidth
+   *          0 for no minimum
+   * @param maxWidth
+   *          0 for no maximum
+   */
+  public void setColumnLimits(int col, int minWidth, int maxWidth)
+  {
+    mSolver.setColumnLimits(col, minWidth, maxWidth);
+    onSpecChanged();
   }
 
   /**
-   * Calculate the heights of each row by finding the maximum height of all
-   * components in that row
+   * Sets the minimum and maximum height of a row. The row stays within them,
+   * both when sized by its children and when stretched by its weight.
+   *
+   * @param minHeight
+   *          0 for no minimum
+   * @param maxHeight
+   *          0 for no maximum
    */
+  public void setRowLimits(int row, int minHeight, int maxHeight)
+  {
+    mSolver.setRowLimits(row, minHeight, maxHeight);
+    onSpecChanged();
+  }
 
-  private int calcHeights()
+  /**
+   * Presents the children of this layout to the GridSolver. Children with a
+   * fixed size (negative span) are reported with a span of 1 and their fixed
+   * size as preferred size. Preferred sizes are stored when a child is
+   * measured so children that are not remeasured keep their size.
+   */
+  private class ChildNodes implements SubgridNodes
   {
-    int[] heights = new int[mRowCount];
-    int totalHeight = 0;
+    private int[] mWidths = new int[0];
+    private int[] mHeights = new int[0];
+
+    // Measure pass in which a child was last measured in virtualized mode
+    private int[] mMeasurePasses = new int[0];
+
+    void ensureCapacity(int count)
+    {
+      if (mWidths.length >= count)
+        return;
+      int capacity = Math.max(count, mWidths.length * 2);
+      int[] widths = new int[capacity];
+      int[] heights = new int[capacity];
+      int[] passes = new int[capacity];
+      System.arraycopy(mWidths, 0, widths, 0, mWidths.length);
+      System.arraycopy(mHeights, 0, heights, 0, mHeights.length);
+      System.arraycopy(mMeasurePasses, 0, passes, 0, mMeasurePasses.length);
+      mWidths = widths;
+      mHeights = heights;
+      mMeasurePasses = passes;
+    }
+
+    /**
+     * Gives a child that was not measured yet an estimated preferred size.
+     * The width is the current preferred width of its columns, so they keep
+     * their width until the child is measured.
+     */
+    void estimate(int node, View childView, int estimatedHeight)
+    {
+      LayoutParams params = (LayoutParams)childView.getLayoutParams();
+      boolean gone = childView.getVisibility() == View.GONE;
+      mWidths[node] = params.w < 0 ? -params.w : gone ? WIDTH_ZERO
+          : mSolver.getPreferredColumnsWidth(params.x, params.w);
+      mHeights[node] = params.h < 0 ? -params.h : gone ? HEIGHT_ZERO
+          : estimatedHeight;
+      mMeasurePasses[node] = 0;
+    }
+
+    int getMeasurePass(int node)
+    {
+      return mMeasurePasses[node];
+    }
+
+    void setMeasurePass(int node, int pass)
+    {
+      mMeasurePasses[node] = pass;
+    }
+
+    /**
+     * Stores the preferred size of a child that has just been measured.
+     * 
+     * @return true when the preferred size changed
+     */
+    boolean update(int node, View childView)
+    {
+      LayoutParams params = (LayoutParams)childView.getLayoutParams();
+      boolean gone = childView.getVisibility() == View.GONE;
+      int width = params.w < 0 ? -params.w : gone ? WIDTH_ZERO : childView
+          .getMeasuredWidth();
+      int height = params.h < 0 ? -params.h : gone ? HEIGHT_ZERO : childView
+          .getMeasuredHeight();
+
+      boolean changed = mWidths[node] != width || mHeights[node] != height;
+      mWidths[node] = width;
+      mHeights[node] = height;
+      return changed;
+    }
+
+    @Override
+    public int getNodeCount()
+    {
+      return getChildCount();
+    }
+
+    @Override
+    public int getCellX(int node)
+    {
+      return params(node).x;
+    }
+
+    @Override
+    public int getCellY(int node)
+    {
+      return params(node).y;
+    }
+
+    @Override
+    public int getSpanX(int node)
+    {
+      int w = params(node).w;
+      return w < 0 ? 1 : w;
+    }
+
+    @Override
+    public int getSpanY(int node)
+    {
+      int h = params(node).h;
+      return h < 0 ? 1 : h;
+    }
+
+    @Override
+    public int getPreferredWidth(int node)
+    {
+      return mWidths[node];
+    }
+
+    @Override
+    public int getPreferredHeight(int node)
+    {
+      return mHeights[node];
+    }
+
+    @Override
+    public int[] getSubgridWidths(int node)
+    {
+      View child = getChildAt(node);
+      if ((getSubgridAxes(child, params(node)) & SUBGRID_COLUMNS) == 0)
+        return null;
+      return ((HIGLayout)child).mSubgridWidths;
+    }
+
+    @Override
+    public int[] getSubgridHeights(int node)
+    {
+      View child = getChildAt(node);
+      if ((getSubgridAxes(child, params(node)) & SUBGRID_ROWS) == 0)
+        return null;
+      return ((HIGLayout)child).mSubgridHeights;
+    }
 
-    ArrayList<View>[] rowComponents;
+    private LayoutParams params(int node)
+    {
+      return (LayoutParams)getChildAt(node).getLayoutParams();
+    }
+  }
+
+  /**
+   * Invalidates the solver's index when children are added or removed and
+   * forwards the calls to the listener set by the user.
+   */
+  private class PassThroughHierarchyChangeListener implements
+      OnHierarchyChangeListener
+  {
+    private OnHierarchyChangeListener mOnHierarchyChangeListener;
 
-    rowComponents = getViewsInRows();
-    for (int i = 0; i < mRowCount; i++)
+    @Override
+    public void onChildViewAdded(View parent, View child)
     {
-      if (mRowHeights[i] > 0)// use specified fixed width
+      if (mActiveBreakpoint != NO_BREAKPOINT)
+        ((LayoutParams)child.getLayoutParams())
+            .applyBreakpoint(mActiveBreakpoint);
+      if (mSolver != null && !mMeasureAllChildren
+          && indexOfChild(child) == getChildCount() - 1)
       {
-        heights[i] = mRowHeights[i];
+        // added at the end, the other children don't move
+        if (mFirstAppendedChild == NO_CHILD)
+          mFirstAppendedChild = getChildCount() - 1;
       }
       else
-      // has not been calculated
       {
-        ArrayList<View> iComps = rowComponents[i];
-        int maxHeight = 0;
-        if (iComps != null)
-        {
-          for (int j = iComps.size() - 1; j >= 0; j--)
-          {
-            View childView = iComps.get(j);
-
-            int height = childView.getVisibility() != View.GONE ? childView
-                .getMeasuredHeight() : HEIGHT_ZERO;
-            LayoutParams params = (LayoutParams)childView.getLayoutParams();
-            if (params.h < 0)
-              height = -params.h;
-            maxHeight = (height > maxHeight) ? height : maxHeight;
-          }
-        }
-        heights[i] = maxHeight;
+        if (mSolver != null)
+          mSolver.invalidateIndex();
+        mMeasureAllChildren = true;
       }
+      if (mOnHierarchyChangeListener != null)
+        mOnHierarchyChangeListener.onChildViewAdded(parent, child);
     }
-    solveCycles(mRowHeights, heights);
 
-    mComputedHeights = heights;
+    @Override
+    public void onChildViewRemoved(View parent, View child)
+    {
+      if (mSolver != null)
+        mSolver.invalidateIndex();
+      mMeasureAllChildren = true;
+      mFirstAppendedChild = NO_CHILD;
+      if (mOnHierarchyChangeListener != null)
+        mOnHierarchyChangeListener.onChildViewRemoved(parent, child);
+    }
+  }
 
-    for (int h : mComputedHeights)
-      totalHeight += h;
+  /**
+   * Told the cost of each measure and layout pass, e.g. to log slow passes
+   * in production. Called on the UI thread right after the pass.
+   */
+  public interface OnLayoutMetricsListener
+  {
+    void onMeasurePass(HIGLayout layout, LayoutMetrics metrics);
 
-    return totalHeight;
+    void onLayoutPass(HIGLayout layout, LayoutMetrics metrics);
   }
 
   /**
-   * Returns an array of views ordered by column. 
-   * @return
+   * Interpolates the column widths and row heights each frame and moves the
+   * children accordingly. The buffers holding both states are reused.
    */
-  @SuppressWarnings("unchecked")
-  private ArrayList<View>[] getViewsInColumns()
+  private class TrackAnimator implements Runnable
   {
-    ArrayList<?>[] list = new ArrayList<?>[mColCount];
+    private int[] mFromWidths = new int[0];
+    private int[] mFromHeights = new int[0];
+    private int[] mToWidths = new int[0];
+    private int[] mToHeights = new int[0];
+    private long mStartTime;
+    private long mDuration;
+    private Interpolator mInterpolator;
+    private boolean mRemeasureAtEnd;
+
+    // The number of columns/rows animated
+    private int mColCount;
+    private int mRowCount;
+
+    // Waiting for the target to be solved by the next layout pass
+    private boolean mPending = false;
+    private boolean mRunning = false;
+
+    /**
+     * Keeps the current sizes as the start of the animation.
+     */
+    void prepare(long duration, Interpolator interpolator,
+        boolean remeasureAtEnd)
+    {
+      removeCallbacks(this);
+      int colCount = mSolver.getColumnCount();
+      int rowCount = mSolver.getRowCount();
+      if (mFromWidths.length < colCount)
+      {
+        mFromWidths = new int[colCount];
+        mToWidths = new int[colCount];
+      }
+      if (mFromHeights.length < rowCount)
+      {
+        mFromHeights = new int[rowCount];
+        mToHeights = new int[rowCount];
+      }
+      mSolver.copyComputedSizes(mFromWidths, mFromHeights);
+      mColCount = colCount;
+      mRowCount = rowCount;
+      mDuration = duration;
+      mInterpolator = interpolator;
+      mRemeasureAtEnd = remeasureAtEnd;
+      mPending = true;
+      mRunning = false;
+    }
 
-    int childCount = getChildCount();
-    for (int i = 0; i < childCount; i++)
+    /**
+     * Called by onLayout() once the target is solved.
+     */
+    void start()
     {
-      View view = getChildAt(i);
-      LayoutParams params = (LayoutParams)view.getLayoutParams();
+      mSolver.copyComputedSizes(mToWidths, mToHeights);
+      mSolver.setComputedSizes(mFromWidths, mFromHeights);
+      mGeometryVersion++;
+      mPending = false;
+      mRunning = true;
+      mStartTime = SystemClock.uptimeMillis();
+      postFrame();
+    }
 
-      if (params.w == 1)
+    /**
+     * Called by onMeasure() after it solved the grid again while animating.
+     * The new sizes become the target, the solver is set back to the sizes
+     * of the current frame. When the number of columns/rows changed the
+     * animation stops at the new sizes.
+     */
+    void retarget()
+    {
+      if (mSolver.getColumnCount() != mColCount
+          || mSolver.getRowCount() != mRowCount)
       {
-        // only add objects when they occupy a single column
-        ArrayList<View> subList = (ArrayList<View>)list[params.x];
-        if (subList == null)
-        {
-          subList = new ArrayList<View>();
-          list[params.x] = subList;
-        }
-        subList.add(view);
+        removeCallbacks(this);
+        mRunning = false;
+        return;
       }
+      mSolver.copyComputedSizes(mToWidths, mToHeights);
+      interpolate(SystemClock.uptimeMillis());
     }
 
-    return (ArrayList<View>[])list;
+    /**
+     * Stops the animation and jumps to the target sizes.
+     */
+    void cancel()
+    {
+      removeCallbacks(this);
+      if (mRunning)
+      {
+        mSolver.setComputedSizes(mToWidths, mToHeights);
+        mGeometryVersion++;
+      }
+      mPending = false;
+      mRunning = false;
+    }
+
+    @Override
+    public void run()
+    {
+      if (!mRunning)
+        return;
+      float t = interpolate(SystemClock.uptimeMillis());
+      layoutChildren(false);
+      invalidate();
+
+      if (t < 1f)
+      {
+        postFrame();
+        return;
+      }
+      mRunning = false;
+      if (mRemeasureAtEnd)
+        requestLayout();
+    }
+
+    /**
+     * Sets the solver to the sizes of the frame at the given time.
+     *
+     * @return the elapsed part of the animation, 0 to 1
+     */
+    private float interpolate(long now)
+    {
+      float t = (now - mStartTime) / (float)mDuration;
+      if (t > 1f)
+        t = 1f;
+      float fraction;
+      if (mInterpolator != null)
+        fraction = mInterpolator.getInterpolation(t);
+      else
+        fraction = (float)(Math.cos((t + 1) * Math.PI) / 2.0) + 0.5f;
+
+      mSolver.interpolateComputedSizes(mFromWidths, mFromHeights, mToWidths,
+          mToHeights, fraction);
+      mGeometryVersion++;
+      return t;
+    }
+
+    private void postFrame()
+    {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+        postOnAnimation(this);
+      else
+        postDelayed(this, FRAME_DELAY_MS);
+    }
   }
 
   /**
-   * Returns an array of views ordered by row.
-   * @return
+   * Lays out again in virtualized mode when scrolling gets within half the
+   * prefetch margin of the edge of the window laid out.
    */
-  @SuppressWarnings("unchecked")
-  private ArrayList<View>[] getViewsInRows()
+  private class ViewportListener implements
+      ViewTreeObserver.OnScrollChangedListener
   {
-    ArrayList<?>[] list = new ArrayList<?>[mRowCount];
-
-    int childCount = getChildCount();
-    for (int i = 0; i < childCount; i++)
+    @Override
+    public void onScrollChanged()
     {
-      View view = getChildAt(i);
-      LayoutParams params = (LayoutParams)view.getLayoutParams();
-      if (params.h == 1)
+      if (!mVirtualized || !getLocalVisibleRect(mVisibleRect))
+        return;
+      int slack = mPrefetchMargin >> 1;
+      if (mVisibleRect.top < mWindowTop + slack
+          || mVisibleRect.bottom > mWindowBottom - slack)
       {
-        // only add objects when they occupy a single row
-        ArrayList<View> subList = (ArrayList<View>)list[params.y];
-        if (subList == null)
-        {
-          subList = new ArrayList<View>();
-          list[params.y] = subList;
-        }
-        subList.add(view);
+        // no child changed, the pass only has to check them if one
+        // requests a layout before it
+        mRequestingOwnLayout = true;
+        requestLayout();
+        mRequestingOwnLayout = false;
       }
     }
-    return (ArrayList<View>[])list;
   }
 
   /**
-   * Takes an array of maximum widths of a column/row and stretches it out
-   * according to the desiredLength and using weights. 
-   * @param desiredLength
-   * @param lengths
-   * @param weights
-   * @param weightSum
+   * Requests a layout when the widths of the column group changed after this
+   * layout was solved. The request is posted because reset() may be called
+   * while another member is measured.
    */
-  private void distributeSizeDifference(int desiredLength, int[] lengths,
-      int[] weights, int weightSum)
+  private class ColumnGroupListener implements
+      ColumnGroup.OnWidthsChangedListener, Runnable
   {
-    int preferred = 0;
-    int newLength;
-    for (int i = lengths.length - 1; i >= 0; i--)
-      preferred += lengths[i];
+    @Override
+    public void onColumnWidthsChanged(ColumnGroup group)
+    {
+      if (mSolver.isColumnGroupCurrent())
+        return;
+      removeCallbacks(this);
+      post(this);
+    }
+
+    @Override
+    public void run()
+    {
+      requestLayout();
+    }
+  }
 
-    double unit = ((double)(desiredLength - preferred)) / (double)weightSum;
+  /**
+   * Solves a column group once the frame this layout added its widths in is
+   * done, so that the other members laid out in that frame add theirs too.
+   */
+  private class ColumnGroupSolver implements Runnable
+  {
+    // the group to solve, null when none is posted
+    private ColumnGroup mGroup;
+
+    void solveLater(ColumnGroup group)
+    {
+      if (mGroup == group)
+        return;
+      mGroup = group;
+      post(this);
+    }
 
-    for (int i = lengths.length - 1; i >= 0; i--)
+    @Override
+    public void run()
     {
-      newLength = lengths[i] + (int)(unit * (double)weights[i]);
-      lengths[i] = newLength;
+      ColumnGroup group = mGroup;
+      mGroup = null;
+      group.solve();
     }
   }
 
   // TODO: handle margins.
   public static class LayoutParams extends ViewGroup.MarginLayoutParams
   {
+    /** Anchor flags. Both flags of an axis set means stretch along it */
+    public static final int ANCHOR_LEFT = Anchor.LEFT;
+    public static final int ANCHOR_RIGHT = Anchor.RIGHT;
+    public static final int ANCHOR_TOP = Anchor.TOP;
+    public static final int ANCHOR_BOTTOM = Anchor.BOTTOM;
+    public static final int ANCHOR_HORIZONTAL = Anchor.HORIZONTAL;
+    public static final int ANCHOR_VERTICAL = Anchor.VERTICAL;
+
     public int x = 0;
     public int y = 0;
     public int w = 1;
     public int h = 1;
+    /**
+     * An anchor assigned here is checked when the child is added to or
+     * updated in the layout, setAnchor() checks it at once.
+     */
     public String anchor = "lrtb";
 
+    // the anchor string compiled to flags and the string they were compiled
+    // from, to detect assignments to the public anchor field
+    private String mCompiledAnchor = anchor;
+    private int mAnchorFlags = ANCHOR_HORIZONTAL | ANCHOR_VERTICAL;
+
+    // x, y, w and h per breakpoint, null when the cell is the same for all
+    // breakpoints. A breakpoint with x < 0 uses the base cell
+    private int[] mBreakpointCells;
+
+    // The breakpoint the cell is for and the cell below the first breakpoint
+    private int mBreakpoint = NO_BREAKPOINT;
+    private int mBaseX;
+    private int mBaseY;
+    private int mBaseW;
+    private int mBaseH;
+
+    // The specs the layout last measured the child with. 0 until then, which
+    // never equals the EXACTLY specs of the final size
+    int mWidthMeasureSpec;
+    int mHeightMeasureSpec;
+
+    // The cell the layout indexed the child in, to detect assignments to the
+    // public fields
+    private int mIndexedX;
+    private int mIndexedY;
+    private int mIndexedW;
+    private int mIndexedH;
+
     public LayoutParams()
     {
       this(null, null);
@@ -887,11 +2376,166 @@ public class HIGLayout extends ViewGroup
       y = a.getInt(R.styleable.HIGlayout_Layout_layout_cellY, -1);
       w = a.getInt(R.styleable.HIGlayout_Layout_layout_spanX, 1);
       h = a.getInt(R.styleable.HIGlayout_Layout_layout_spanY, 1);
-      anchor = a.getString(R.styleable.HIGlayout_Layout_layout_anchor);
-      if (anchor == null)
-        anchor = "lrtb";
+      String anchorAttr = a
+          .getString(R.styleable.HIGlayout_Layout_layout_anchor);
+      String cells = a
+          .getString(R.styleable.HIGlayout_Layout_layout_breakpoint_cells);
 
       a.recycle();
+
+      if (cells != null)
+        parseBreakpointCells(cells);
+
+      // invalid anchors are reported while inflating
+      setAnchor(anchorAttr != null ? anchorAttr : "lrtb");
+    }
+
+    /**
+     * Sets the cell of the child for a breakpoint of the layout. The fields
+     * x, y, w and h hold the cell below the first breakpoint until the
+     * layout switches to a breakpoint.
+     *
+     * @see HIGLayout#setBreakpoints(int[], GridSpec[])
+     */
+    public void setBreakpointCell(int breakpoint, int x, int y, int w, int h)
+    {
+      int length = (breakpoint + 1) * 4;
+      if (mBreakpointCells == null || mBreakpointCells.length < length)
+      {
+        int[] cells = new int[length];
+        int start = 0;
+        if (mBreakpointCells != null)
+        {
+          System.arraycopy(mBreakpointCells, 0, cells, 0,
+              mBreakpointCells.length);
+          start = mBreakpointCells.length;
+        }
+        for (int k = start; k < length; k += 4)
+          cells[k] = -1;
+        mBreakpointCells = cells;
+      }
+      int k = breakpoint * 4;
+      mBreakpointCells[k] = x;
+      mBreakpointCells[k + 1] = y;
+      mBreakpointCells[k + 2] = w;
+      mBreakpointCells[k + 3] = h;
+    }
+
+    /**
+     * Parses the layout_breakpoint_cells attribute: "x,y,w,h" per
+     * breakpoint separated by ';'. An empty entry keeps the base cell.
+     */
+    private void parseBreakpointCells(String attribute)
+    {
+      String[] entries = attribute.split(";", -1);
+      for (int i = 0; i < entries.length; i++)
+      {
+        if (entries[i].trim().length() == 0)
+          continue;
+        int[] cell = GridSpec.parse(entries[i].trim(),
+            "layout_breakpoint_cells");
+        if (cell.length != 4)
+          throw new IllegalArgumentException(
+              "Illegal value in layout_breakpoint_cells attribute.");
+        setBreakpointCell(i, cell[0], cell[1], cell[2], cell[3]);
+      }
+    }
+
+    /**
+     * Moves the child to its cell for a breakpoint.
+     */
+    void applyBreakpoint(int breakpoint)
+    {
+      if (mBreakpointCells == null || breakpoint == mBreakpoint)
+        return;
+      if (mBreakpoint == NO_BREAKPOINT)
+      {
+        mBaseX = x;
+        mBaseY = y;
+        mBaseW = w;
+        mBaseH = h;
+      }
+      mBreakpoint = breakpoint;
+
+      int k = breakpoint * 4;
+      if (breakpoint == NO_BREAKPOINT || k >= mBreakpointCells.length
+          || mBreakpointCells[k] < 0)
+      {
+        x = mBaseX;
+        y = mBaseY;
+        w = mBaseW;
+        h = mBaseH;
+      }
+      else
+      {
+        x = mBreakpointCells[k];
+        y = mBreakpointCells[k + 1];
+        w = mBreakpointCells[k + 2];
+        h = mBreakpointCells[k + 3];
+      }
+    }
+
+    /**
+     * Remembers the current cell as the one the layout indexed the child in.
+     *
+     * @return true when the cell differs from the one remembered before
+     */
+    boolean updateIndexedCell()
+    {
+      if (x == mIndexedX && y == mIndexedY && w == mIndexedW && h == mIndexedH)
+        return false;
+      mIndexedX = x;
+      mIndexedY = y;
+      mIndexedW = w;
+      mIndexedH = h;
+      return true;
+    }
+
+    /**
+     * Sets the anchor and compiles it to flags.
+     * 
+     * @param anchor
+     *          any combination of the characters l, r, t and b. null or an
+     *          empty string centres the child in its cell.
+     * @throws IllegalArgumentException
+     *           when the anchor contains other characters
+     */
+    public void setAnchor(String anchor)
+    {
+      mAnchorFlags = compileAnchor(anchor);
+      this.anchor = anchor;
+      mCompiledAnchor = anchor;
+    }
+
+    /**
+     * @return the anchor as a combination of the ANCHOR_ flags
+     */
+    public int getAnchorFlags()
+    {
+      if (anchor != mCompiledAnchor)
+        setAnchor(anchor);
+      return mAnchorFlags;
+    }
+
+    /**
+     * @return true when the child is anchored to both sides along the axis
+     *         given by ANCHOR_HORIZONTAL or ANCHOR_VERTICAL
+     */
+    public boolean isStretched(int axis)
+    {
+      return (getAnchorFlags() & axis) == axis;
+    }
+
+    /**
+     * Converts an anchor string to ANCHOR_ flags. A second letter along an
+     * axis, e.g. "lr" or "ll", stretches the child along it.
+     * 
+     * @throws IllegalArgumentException
+     *           when the anchor contains other characters than l, r, t and b
+     */
+    public static int compileAnchor(String anchor)
+    {
+      return Anchor.compile(anchor);
     }
   }
 
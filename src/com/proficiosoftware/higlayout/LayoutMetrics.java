@@ -0,0 +1,178 @@
+package com.proficiosoftware.higlayout;
+
+/*
+ * LayoutMetrics.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * The cost of the last measure or layout pass of a HIGLayout. Times are in
+ * nanoseconds and cover only the last pass, the pass counts add up over all
+ * passes since the listener was attached.
+ *
+ * The same object is reused for every pass, read it in the listener and
+ * copy what has to be kept.
+ *
+ * @see HIGLayout#setOnLayoutMetricsListener(HIGLayout.OnLayoutMetricsListener)
+ */
+public final class LayoutMetrics
+{
+  int measureCount;
+  int layoutCount;
+
+  long measureNanos;
+  long measureChildrenNanos;
+  long calcWidthsNanos;
+  long calcHeightsNanos;
+  long distributeNanos;
+  boolean measureCacheHit;
+  int tracksComputed;
+
+  long layoutNanos;
+  int layoutRemeasures;
+
+  // state at the start of the pass
+  private long mStartTime;
+  private int mStartTracks;
+  private int mStartRemeasures;
+
+  LayoutMetrics()
+  {
+  }
+
+  void beginMeasure(int tracksComputed)
+  {
+    measureCount++;
+    measureChildrenNanos = 0;
+    calcWidthsNanos = 0;
+    calcHeightsNanos = 0;
+    distributeNanos = 0;
+    measureCacheHit = false;
+    mStartTracks = tracksComputed;
+    mStartTime = System.nanoTime();
+  }
+
+  void endMeasure(int tracksComputed)
+  {
+    measureNanos = System.nanoTime() - mStartTime;
+    this.tracksComputed = tracksComputed - mStartTracks;
+  }
+
+  void beginLayout(int remeasures)
+  {
+    layoutCount++;
+    mStartRemeasures = remeasures;
+    mStartTime = System.nanoTime();
+  }
+
+  void endLayout(int remeasures)
+  {
+    layoutNanos = System.nanoTime() - mStartTime;
+    layoutRemeasures = remeasures - mStartRemeasures;
+  }
+
+  /**
+   * @return the number of onMeasure() calls
+   */
+  public int getMeasureCount()
+  {
+    return measureCount;
+  }
+
+  /**
+   * @return the number of onLayout() calls
+   */
+  public int getLayoutCount()
+  {
+    return layoutCount;
+  }
+
+  /**
+   * @return the time of the whole last measure pass
+   */
+  public long getMeasureNanos()
+  {
+    return measureNanos;
+  }
+
+  /**
+   * @return the time spent measuring children in the last measure pass
+   */
+  public long getMeasureChildrenNanos()
+  {
+    return measureChildrenNanos;
+  }
+
+  /**
+   * @return the time spent computing the column widths from the children
+   */
+  public long getCalcWidthsNanos()
+  {
+    return calcWidthsNanos;
+  }
+
+  /**
+   * @return the time spent computing the row heights from the children
+   */
+  public long getCalcHeightsNanos()
+  {
+    return calcHeightsNanos;
+  }
+
+  /**
+   * @return the time spent stretching the columns/rows by their weights
+   */
+  public long getDistributeNanos()
+  {
+    return distributeNanos;
+  }
+
+  /**
+   * @return true when the last measure pass was answered from the measure
+   *         cache
+   */
+  public boolean isMeasureCacheHit()
+  {
+    return measureCacheHit;
+  }
+
+  /**
+   * @return the number of columns/rows whose size was computed from the
+   *         children in the last measure pass
+   */
+  public int getTracksComputed()
+  {
+    return tracksComputed;
+  }
+
+  /**
+   * @return the time of the last layout pass, mostly positioning children
+   */
+  public long getLayoutNanos()
+  {
+    return layoutNanos;
+  }
+
+  /**
+   * @return the number of children measured again at their final size in
+   *         the last layout pass
+   */
+  public int getLayoutRemeasures()
+  {
+    return layoutRemeasures;
+  }
+}
@@ -0,0 +1,168 @@
+package com.proficiosoftware.higlayout;
+
+/*
+ * MeasureCache.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * Remembers the outcome of the last few measure passes keyed by the measure
+ * specs (and padding) they were made with and the state of the children
+ * they were solved for. Parents that measure a child more than once with
+ * the same constraints, e.g. AT_MOST and then EXACTLY, then get the solved
+ * grid back without measuring children or running the solver.
+ *
+ * The cache holds a fixed number of entries which are replaced oldest
+ * first. Entry buffers are reused, so a filled cache does not allocate.
+ */
+final class MeasureCache
+{
+  static final int DEFAULT_SIZE = 4;
+
+  /**
+   * The outcome of a single measure pass.
+   */
+  static final class Entry
+  {
+    int widthMeasureSpec;
+    int heightMeasureSpec;
+    int paddingLeft;
+    int paddingTop;
+    int paddingRight;
+    int paddingBottom;
+    int childState;
+
+    int measuredWidth;
+    int measuredHeight;
+
+    // solved column widths and row heights
+    int[] widths = new int[0];
+    int[] heights = new int[0];
+
+    // preferred sizes of the children the grid was solved with
+    int[] nodeWidths = new int[0];
+    int[] nodeHeights = new int[0];
+
+    void ensureCapacity(int colCount, int rowCount, int nodeCount)
+    {
+      if (widths.length < colCount)
+        widths = new int[colCount];
+      if (heights.length < rowCount)
+        heights = new int[rowCount];
+      if (nodeWidths.length < nodeCount)
+      {
+        nodeWidths = new int[nodeCount];
+        nodeHeights = new int[nodeCount];
+      }
+    }
+  }
+
+  private final Entry[] mEntries;
+  private int mCount = 0;
+  private int mNext = 0;
+
+  private int mHits = 0;
+  private int mMisses = 0;
+
+  MeasureCache(int size)
+  {
+    mEntries = new Entry[size];
+  }
+
+  /**
+   * Looks up the outcome of a pass made with the given constraints for the
+   * given state of the children and counts the hit or miss.
+   *
+   * @return the entry or null when there is none
+   */
+  Entry get(int widthMeasureSpec, int heightMeasureSpec, int paddingLeft,
+      int paddingTop, int paddingRight, int paddingBottom, int childState)
+  {
+    for (int i = 0; i < mCount; i++)
+    {
+      Entry e = mEntries[i];
+      if (e.widthMeasureSpec == widthMeasureSpec
+          && e.heightMeasureSpec == heightMeasureSpec
+          && e.paddingLeft == paddingLeft && e.paddingTop == paddingTop
+          && e.paddingRight == paddingRight
+          && e.paddingBottom == paddingBottom
+          && e.childState == childState)
+      {
+        mHits++;
+        return e;
+      }
+    }
+    mMisses++;
+    return null;
+  }
+
+  /**
+   * Returns the entry to store the outcome of a pass in, replacing the
+   * oldest entry when the cache is full. The caller fills in the result.
+   */
+  Entry put(int widthMeasureSpec, int heightMeasureSpec, int paddingLeft,
+      int paddingTop, int paddingRight, int paddingBottom, int childState)
+  {
+    Entry e = mEntries[mNext];
+    if (e == null)
+    {
+      e = new Entry();
+      mEntries[mNext] = e;
+    }
+    mNext = (mNext + 1) % mEntries.length;
+    if (mCount < mEntries.length)
+      mCount++;
+
+    e.widthMeasureSpec = widthMeasureSpec;
+    e.heightMeasureSpec = heightMeasureSpec;
+    e.paddingLeft = paddingLeft;
+    e.paddingTop = paddingTop;
+    e.paddingRight = paddingRight;
+    e.paddingBottom = paddingBottom;
+    e.childState = childState;
+    return e;
+  }
+
+  /**
+   * Counts a pass that could not be answered from the cache without looking
+   * it up, e.g. because the columns/rows changed.
+   */
+  void countMiss()
+  {
+    mMisses++;
+  }
+
+  /**
+   * Forgets all entries. Must be called whenever a child or a column/row
+   * changes.
+   */
+  void clear()
+  {
+    mCount = 0;
+    mNext = 0;
+  }
+
+  int getHits()
+  {
+    return mHits;
+  }
+
+  int getMisses()
+  {
+    return mMisses;
+  }
+}
@@ -0,0 +1,238 @@
+package com.proficiosoftware.higlayout;
+
+/*
+ * SizeDistributor.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * Stretches or shrinks columns (or rows) to a desired total length by their
+ * weights, in integers:
+ *
+ * 1. Tracks that would pass their maximum (or their minimum, or 0, when
+ *    shrinking) at their share are set to that limit and leave the
+ *    distribution, smallest room per weight first (water-filling).
+ * 2. The other tracks get the rest by weight. The pixels left over by
+ *    rounding down go to the tracks with the largest remainders.
+ *
+ * No pixel is lost, the tracks only fall short of the desired length when
+ * all weighted tracks are at their limit. Sorting takes O(n log n) for n
+ * weighted tracks and only happens when a track reaches its limit or pixels
+ * are left over. Buffers are reused, after the first pass nothing is
+ * allocated.
+ */
+final class SizeDistributor
+{
+  // weighted tracks, the tracks at their limit first
+  private int[] mOrder = new int[0];
+
+  // per track the room left until its limit, later the rounding remainder
+  private long[] mKey = new long[0];
+
+  // the weights of the current pass, used by the comparisons
+  private int[] mWeights;
+
+  /**
+   * Stretches the lengths to the desired length.
+   *
+   * @param lengths
+   *          the preferred lengths, changed in place
+   * @param weights
+   *          tracks with weight 0 keep their length
+   * @param count
+   *          number of columns/rows in lengths and weights
+   * @return false when the lengths didn't change
+   */
+  boolean distribute(int desiredLength, int[] lengths, int[] weights,
+      int count, TrackLimits limits)
+  {
+    long preferred = 0;
+    for (int i = 0; i < count; i++)
+      preferred += lengths[i];
+    long remaining = desiredLength - preferred;
+    if (remaining == 0)
+      return false;
+    boolean grow = remaining > 0;
+    if (!grow)
+      remaining = -remaining;
+
+    if (mOrder.length < count)
+    {
+      mOrder = new int[count];
+      mKey = new long[count];
+    }
+    int[] order = mOrder;
+    long[] room = mKey;
+    mWeights = weights;
+
+    // find the weighted tracks and the room they have left
+    int n = 0;
+    long weightSum = 0;
+    for (int i = 0; i < count; i++)
+    {
+      if (weights[i] <= 0)
+        continue;
+      long r;
+      if (grow)
+      {
+        int max = limits.getMax(i);
+        r = max > 0 ? Math.max(0, max - lengths[i]) : Long.MAX_VALUE;
+      }
+      else
+      {
+        r = Math.max(0, lengths[i] - limits.getMin(i));
+      }
+      order[n++] = i;
+      room[i] = r;
+      weightSum += weights[i];
+    }
+    if (n == 0)
+      return false;
+
+    // tracks whose share exceeds their room reach their limit, this changes
+    // the share of the others. Only sort when a track reaches its limit
+    int first = 0;
+    if (anyLimited(order, 0, n, remaining, weightSum))
+    {
+      sort(order, 0, n, true);
+      while (first < n)
+      {
+        int i = order[first];
+        if (!limited(i, remaining, weightSum))
+          break;
+        lengths[i] += grow ? room[i] : -room[i];
+        remaining -= room[i];
+        weightSum -= weights[i];
+        first++;
+      }
+      if (first == n)
+        return true;
+    }
+
+    // the others get the rest by weight, rounded down
+    long given = 0;
+    long[] remainder = mKey;
+    for (int k = first; k < n; k++)
+    {
+      int i = order[k];
+      long share = remaining * weights[i] / weightSum;
+      remainder[i] = remaining * weights[i] % weightSum;
+      lengths[i] += grow ? share : -share;
+      given += share;
+    }
+
+    // and the pixels left over to the largest remainders
+    long left = remaining - given;
+    if (left > 0)
+    {
+      sort(order, first, n, false);
+      for (int k = first; left > 0; k++, left--)
+        lengths[order[k]] += grow ? 1 : -1;
+    }
+    return true;
+  }
+
+  /**
+   * @return true when the share of a track exceeds its room
+   */
+  private boolean limited(int track, long remaining, long weightSum)
+  {
+    // room / weight <= remaining / weightSum, room may be Long.MAX_VALUE
+    long room = mKey[track];
+    long weight = mWeights[track];
+    return room <= remaining
+        && room * weightSum <= remaining * weight;
+  }
+
+  private boolean anyLimited(int[] order, int from, int to, long remaining,
+      long weightSum)
+  {
+    for (int k = from; k < to; k++)
+    {
+      if (limited(order[k], remaining, weightSum))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return true when track a goes before track b. By room per weight
+   *         ascending or by remainder descending, ties by index.
+   */
+  private boolean before(int a, int b, boolean byRoom)
+  {
+    long ka = mKey[a];
+    long kb = mKey[b];
+    if (byRoom)
+    {
+      // ka / wa < kb / wb, room may be Long.MAX_VALUE
+      if (ka == Long.MAX_VALUE || kb == Long.MAX_VALUE)
+      {
+        if (ka != kb)
+          return kb == Long.MAX_VALUE;
+      }
+      else
+      {
+        long left = ka * mWeights[b];
+        long right = kb * mWeights[a];
+        if (left != right)
+          return left < right;
+      }
+    }
+    else if (ka != kb)
+    {
+      return ka > kb;
+    }
+    return a < b;
+  }
+
+  /**
+   * Heap sort of order[from..to), in place.
+   */
+  private void sort(int[] order, int from, int to, boolean byRoom)
+  {
+    int n = to - from;
+    for (int i = n / 2 - 1; i >= 0; i--)
+      siftDown(order, from, i, n, byRoom);
+    for (int end = n - 1; end > 0; end--)
+    {
+      int t = order[from];
+      order[from] = order[from + end];
+      order[from + end] = t;
+      siftDown(order, from, 0, end, byRoom);
+    }
+  }
+
+  private void siftDown(int[] order, int from, int i, int n, boolean byRoom)
+  {
+    while (true)
+    {
+      int child = 2 * i + 1;
+      if (child >= n)
+        return;
+      if (child + 1 < n
+          && before(order[from + child], order[from + child + 1], byRoom))
+        child++;
+      if (!before(order[from + i], order[from + child], byRoom))
+        return;
+      int t = order[from + i];
+      order[from + i] = order[from + child];
+      order[from + child] = t;
+      i = child;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.proficiosoftware.higlayout;
+
+/*
+ * SubgridNodes.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * Nodes of which some are subgrids: nested grids that use the columns and/or
+ * rows they span instead of their own. A subgrid reports the size it needs
+ * for each of the spanned columns/rows, so its own children size the tracks
+ * of the outer grid as if they were placed in it directly.
+ *
+ * @see GridSolver#calcWidths(GridNodes)
+ * @see HIGLayout#setSubgrid(int)
+ */
+public interface SubgridNodes extends GridNodes
+{
+  /**
+   * @return the width the node needs in each column it spans or null when
+   *         the node is not a subgrid of the columns. The array holds
+   *         getSpanX(node) widths.
+   */
+  int[] getSubgridWidths(int node);
+
+  /**
+   * @return the height the node needs in each row it spans or null when the
+   *         node is not a subgrid of the rows. The array holds
+   *         getSpanY(node) heights.
+   */
+  int[] getSubgridHeights(int node);
+}
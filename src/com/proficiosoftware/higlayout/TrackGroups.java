@@ -0,0 +1,211 @@
+package com.proficiosoftware.higlayout;
+
+/*
+ * TrackGroups.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * The references between columns (or rows) compiled into groups of tracks
+ * that share the same size. A track with a negative size -n references
+ * track n. Every group either ends in a track that references nothing, which
+ * then determines the size of the whole group, or contains a cycle of
+ * references, in which case the largest track of the cycle determines the
+ * size.
+ *
+ * The groups are found once with union-find when the sizes are configured.
+ * Applying them to the computed sizes is a single linear pass. Members of a
+ * group are stored in compressed sparse row form with the tracks that
+ * determine the size (the sources) first.
+ */
+final class TrackGroups
+{
+  static final TrackGroups NONE = new TrackGroups(0, new int[1], new int[0],
+      new int[0]);
+
+  private final int mGroupCount;
+  private final int[] mStart;
+  private final int[] mMembers;
+  private final int[] mSourceCount;
+
+  private TrackGroups(int groupCount, int[] start, int[] members,
+      int[] sourceCount)
+  {
+    mGroupCount = groupCount;
+    mStart = start;
+    mMembers = members;
+    mSourceCount = sourceCount;
+  }
+
+  /**
+   * Compiles the references in a list of column widths or row heights.
+   *
+   * @param g
+   *          the column widths or row heights as supplied in XML
+   * @param count
+   *          the number of columns/rows in g
+   * @throws IllegalArgumentException
+   *           when a column/row references a non existing column/row
+   */
+  static TrackGroups compile(int[] g, int count)
+  {
+    int[] parent = new int[count];
+    boolean[] involved = new boolean[count];
+    boolean any = false;
+    for (int i = 0; i < count; i++)
+      parent[i] = i;
+    for (int i = 0; i < count; i++)
+    {
+      if (g[i] < 0)
+      {
+        int target = -g[i];
+        if (target > count - 1)
+          throw new IllegalArgumentException(
+              "Column or Row referencing non existing column or row");
+        union(parent, i, target);
+        involved[i] = true;
+        involved[target] = true;
+        any = true;
+      }
+    }
+    if (!any)
+      return NONE;
+
+    // number the groups
+    int[] groupOf = new int[count];
+    int[] rootGroup = new int[count];
+    for (int i = 0; i < count; i++)
+      rootGroup[i] = -1;
+    int groupCount = 0;
+    for (int i = 0; i < count; i++)
+    {
+      if (!involved[i])
+        continue;
+      int root = find(parent, i);
+      if (rootGroup[root] < 0)
+        rootGroup[root] = groupCount++;
+      groupOf[i] = rootGroup[root];
+    }
+
+    int[] start = new int[groupCount + 1];
+    for (int i = 0; i < count; i++)
+    {
+      if (involved[i])
+        start[groupOf[i] + 1]++;
+    }
+    for (int i = 1; i <= groupCount; i++)
+      start[i] += start[i - 1];
+
+    // the track that references nothing is the source of its group. A group
+    // without one contains a cycle, all tracks of the cycle are sources
+    boolean[] source = new boolean[count];
+    boolean[] hasSource = new boolean[groupCount];
+    for (int i = 0; i < count; i++)
+    {
+      if (involved[i] && g[i] >= 0)
+      {
+        source[i] = true;
+        hasSource[groupOf[i]] = true;
+      }
+    }
+    for (int i = 0; i < count; i++)
+    {
+      if (!involved[i] || hasSource[groupOf[i]])
+        continue;
+      // after as many steps as the group has tracks we are on the cycle
+      int size = start[groupOf[i] + 1] - start[groupOf[i]];
+      int current = i;
+      for (int step = 0; step < size; step++)
+        current = -g[current];
+      int first = current;
+      do
+      {
+        source[current] = true;
+        current = -g[current];
+      } while (current != first);
+      hasSource[groupOf[i]] = true;
+    }
+
+    int[] members = new int[start[groupCount]];
+    int[] sourceCount = new int[groupCount];
+    int[] next = new int[groupCount];
+    System.arraycopy(start, 0, next, 0, groupCount);
+    for (int i = 0; i < count; i++)
+    {
+      if (involved[i] && source[i])
+      {
+        members[next[groupOf[i]]++] = i;
+        sourceCount[groupOf[i]]++;
+      }
+    }
+    for (int i = 0; i < count; i++)
+    {
+      if (involved[i] && !source[i])
+        members[next[groupOf[i]]++] = i;
+    }
+
+    return new TrackGroups(groupCount, start, members, sourceCount);
+  }
+
+  private static int find(int[] parent, int i)
+  {
+    while (parent[i] != i)
+    {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  private static void union(int[] parent, int a, int b)
+  {
+    int ra = find(parent, a);
+    int rb = find(parent, b);
+    if (ra != rb)
+      parent[ra] = rb;
+  }
+
+  /**
+   * @return true when no column/row references another one
+   */
+  boolean isEmpty()
+  {
+    return mGroupCount == 0;
+  }
+
+  /**
+   * Gives all tracks of a group the size of the largest source of the group.
+   */
+  void apply(int[] lengths)
+  {
+    for (int group = 0; group < mGroupCount; group++)
+    {
+      int first = mStart[group];
+      int end = mStart[group + 1];
+      int sourceEnd = first + mSourceCount[group];
+
+      int maxLength = lengths[mMembers[first]];
+      for (int j = first + 1; j < sourceEnd; j++)
+      {
+        int length = lengths[mMembers[j]];
+        maxLength = (length > maxLength) ? length : maxLength;
+      }
+      for (int j = first; j < end; j++)
+        lengths[mMembers[j]] = maxLength;
+    }
+  }
+}
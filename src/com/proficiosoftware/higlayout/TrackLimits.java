@@ -0,0 +1,167 @@
+package com.proficiosoftware.higlayout;
+
+/*
+ * TrackLimits.java - HIGLayout layout manager
+ * Copyright (C) 2014 Jaap Geurts
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/**
+ * The minimum and maximum sizes of the columns (or rows) of a grid. A value
+ * of 0 means the track has no minimum or maximum. Tracks beyond the arrays,
+ * e.g. rows appended later, have no limits.
+ *
+ * Limits are immutable and shared between specs like TrackGroups.
+ */
+final class TrackLimits
+{
+  static final TrackLimits NONE = new TrackLimits(new int[0], new int[0]);
+
+  private final int[] mMin;
+  private final int[] mMax;
+
+  private TrackLimits(int[] min, int[] max)
+  {
+    mMin = min;
+    mMax = max;
+  }
+
+  /**
+   * Takes ownership of the arrays.
+   *
+   * @param min
+   *          minimum size per track, may be null
+   * @param max
+   *          maximum size per track, may be null
+   * @throws IllegalArgumentException
+   *           when a limit is negative or a minimum exceeds its maximum
+   */
+  static TrackLimits create(int[] min, int[] max)
+  {
+    if (min == null)
+      min = new int[0];
+    if (max == null)
+      max = new int[0];
+
+    boolean any = false;
+    for (int i = Math.max(min.length, max.length) - 1; i >= 0; i--)
+    {
+      int lo = i < min.length ? min[i] : 0;
+      int hi = i < max.length ? max[i] : 0;
+      if (lo < 0 || hi < 0)
+        throw new IllegalArgumentException(
+            "Minimum and maximum size of a column or row can't be negative");
+      if (hi > 0 && lo > hi)
+        throw new IllegalArgumentException(
+            "Minimum size of a column or row exceeds its maximum size");
+      any |= lo > 0 || hi > 0;
+    }
+    return any ? new TrackLimits(min, max) : NONE;
+  }
+
+  /**
+   * @return true when no column/row has a limit
+   */
+  boolean isEmpty()
+  {
+    return this == NONE;
+  }
+
+  /**
+   * @return the minimum size of a track, 0 when it has none
+   */
+  int getMin(int track)
+  {
+    return track < mMin.length ? mMin[track] : 0;
+  }
+
+  /**
+   * @return the maximum size of a track, 0 when it has none
+   */
+  int getMax(int track)
+  {
+    return track < mMax.length ? mMax[track] : 0;
+  }
+
+  /**
+   * @return a copy with changed limits for a track
+   */
+  TrackLimits with(int track, int min, int max)
+  {
+    int length = Math.max(track + 1, Math.max(mMin.length, mMax.length));
+    int[] mins = new int[length];
+    int[] maxs = new int[length];
+    System.arraycopy(mMin, 0, mins, 0, mMin.length);
+    System.arraycopy(mMax, 0, maxs, 0, mMax.length);
+    mins[track] = min;
+    maxs[track] = max;
+    return create(mins, maxs);
+  }
+
+  /**
+   * @return the minimum sizes of the first count tracks
+   */
+  int[] copyMin(int count)
+  {
+    return copy(mMin, count);
+  }
+
+  /**
+   * @return the maximum sizes of the first count tracks
+   */
+  int[] copyMax(int count)
+  {
+    return copy(mMax, count);
+  }
+
+  private static int[] copy(int[] src, int count)
+  {
+    int[] dest = new int[count];
+    System.arraycopy(src, 0, dest, 0, Math.min(count, src.length));
+    return dest;
+  }
+
+  /**
+   * @return the size of a track brought within its limits
+   */
+  int clamp(int track, int length)
+  {
+    int min = getMin(track);
+    int max = getMax(track);
+    if (length < min)
+      return min;
+    return max > 0 && length > max ? max : length;
+  }
+
+  /**
+   * Brings the sizes of the tracks within their limits.
+   */
+  void clamp(int[] lengths, int count)
+  {
+    int n = Math.min(count, mMin.length);
+    for (int i = 0; i < n; i++)
+    {
+      if (lengths[i] < mMin[i])
+        lengths[i] = mMin[i];
+    }
+    n = Math.min(count, mMax.length);
+    for (int i = 0; i < n; i++)
+    {
+      if (mMax[i] > 0 && lengths[i] > mMax[i])
+        lengths[i] = mMax[i];
+    }
+  }
+}